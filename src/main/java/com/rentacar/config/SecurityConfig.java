@@ -54,6 +54,7 @@ public class SecurityConfig {
                     new AntPathRequestMatcher("/vehicles/{id}"),
                     new AntPathRequestMatcher("/vehicles/search"),
                     new AntPathRequestMatcher("/api/vehicles/public/**"),
+                    new AntPathRequestMatcher("/api/vehicles/tiles/**"),
                     new AntPathRequestMatcher("/test/**"),
                     new AntPathRequestMatcher("/login-error"),
                     new AntPathRequestMatcher("/api/diagnostic/**"), // Add diagnostic endpoint
@@ -61,7 +62,11 @@ public class SecurityConfig {
                 ).permitAll()
                 
                 // Admin-only areas - use hasRole instead of hasAuthority for better consistency
-                .requestMatchers(new AntPathRequestMatcher("/admin/**")).hasRole("ADMIN")
+                .requestMatchers(
+                    new AntPathRequestMatcher("/admin/**"),
+                    new AntPathRequestMatcher("/api/admin/**"),
+                    new AntPathRequestMatcher("/actuator/metrics/**") // Telemetry and SQL counters
+                ).hasRole("ADMIN")
                 
                 // User areas
                 .requestMatchers(
@@ -0,0 +1,72 @@
+package com.rentacar.config;
+
+import com.rentacar.monitoring.SqlBudget;
+import com.rentacar.monitoring.SqlOffender;
+import com.rentacar.monitoring.SqlOffenderLog;
+import com.rentacar.monitoring.SqlRequestStats;
+import com.rentacar.monitoring.SqlStatementMonitor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Counts the SQL statements, rows and JDBC time of each request and records the requests that go
+ * over the budget in {@link SqlOffenderLog}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "rentacar.sql.monitor.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private final SqlOffenderLog offenderLog;
+    private final SqlBudget budget;
+
+    public SqlBudgetFilter(SqlOffenderLog offenderLog,
+                           @Value("${rentacar.sql.budget.max-statements:25}") int maxStatements,
+                           @Value("${rentacar.sql.budget.max-repeated:5}") int maxRepeated) {
+        this.offenderLog = offenderLog;
+        this.budget = new SqlBudget(maxStatements, maxRepeated);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        SqlRequestStats stats = SqlStatementMonitor.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Must not throw here: that would hide the request's own exception
+            if (!SqlStatementMonitor.restore(stats)) {
+                log.warn("{} {} left a SQL monitoring scope open", request.getMethod(), request.getRequestURI());
+            }
+            List<String> violations = budget.violations(stats);
+            if (!violations.isEmpty()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String path = pattern != null ? pattern.toString() : request.getRequestURI();
+                log.warn("{} {} exceeded the SQL budget ({} ms in JDBC): {}", request.getMethod(), path,
+                        stats.getExecutionMillis(), violations);
+                offenderLog.record(new SqlOffender(Instant.now(), request.getMethod(), path,
+                        stats.getStatements(), stats.getRows(), stats.getEntityFetches(),
+                        stats.getCollectionFetches(), stats.getExecutionMillis(), violations));
+            }
+        }
+    }
+}
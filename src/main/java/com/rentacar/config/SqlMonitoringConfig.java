@@ -0,0 +1,32 @@
+package com.rentacar.config;
+
+import com.rentacar.monitoring.SqlCountingInspector;
+import com.rentacar.monitoring.SqlCountingStatistics;
+import com.rentacar.monitoring.SqlTimingListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.StatisticsSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Installs the per-request SQL counters into Hibernate; {@link SqlBudgetFilter} opens the scope per
+ * request. Turn off with {@code rentacar.sql.monitor.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rentacar.sql.monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitoringConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlMonitoringCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlCountingInspector());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlTimingListener.class.getName());
+            // Row and load counts come from the statistics, which Hibernate only maintains when enabled
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(StatisticsSettings.STATS_BUILDER, (StatisticsFactory) SqlCountingStatistics::new);
+        };
+    }
+}
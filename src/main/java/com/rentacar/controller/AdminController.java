@@ -1,8 +1,10 @@
 package com.rentacar.controller;
 
+import com.rentacar.dto.FleetStatistics;
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.model.Reservation;
 import com.rentacar.model.Vehicle;
-import com.rentacar.service.ReservationService;
-import com.rentacar.service.UserService;
+import com.rentacar.service.FleetStatisticsService;
 import com.rentacar.service.VehicleService;
 import com.rentacar.util.FileUploadUtil;
 import jakarta.annotation.PostConstruct;
@@ -17,7 +19,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 
 @Controller
 @RequestMapping("/admin")
@@ -25,8 +26,7 @@ import java.util.List;
 public class AdminController {
 
     private final VehicleService vehicleService;
-    private final UserService userService;
-    private final ReservationService reservationService;
+    private final FleetStatisticsService fleetStatisticsService;
     
     private static final String VEHICLE_UPLOAD_DIR = "src/main/resources/static/images/vehicles";
 
@@ -46,22 +46,27 @@ public class AdminController {
 
     @GetMapping
     public String adminDashboard(Model model) {
-        long vehicleCount = vehicleService.getAllVehicles().size();
-        long userCount = userService.getAllUsers().size();
-        long reservationCount = reservationService.getAllReservations().size();
+        FleetStatistics statistics = fleetStatisticsService.getStatistics();
         
-        model.addAttribute("vehicleCount", vehicleCount);
-        model.addAttribute("userCount", userCount);
-        model.addAttribute("reservationCount", reservationCount);
+        model.addAttribute("vehicleCount", statistics.vehicles());
+        model.addAttribute("userCount", statistics.users());
+        model.addAttribute("reservationCount", statistics.reservations());
+        model.addAttribute("pendingReservationCount", statistics.reservationsByStatus().get(Reservation.ReservationStatus.PENDING));
+        model.addAttribute("confirmedReservationCount", statistics.reservationsByStatus().get(Reservation.ReservationStatus.CONFIRMED));
         
         return "admin/dashboard";
     }
 
     // Vehicle Management
     @GetMapping("/vehicles")
-    public String manageVehicles(Model model) {
-        List<Vehicle> vehicles = vehicleService.getAllVehicles();
-        model.addAttribute("vehicles", vehicles);
+    public String manageVehicles(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            Model model) {
+        KeysetPage<Vehicle> page = vehicleService.getVehiclePage(cursor, KeysetPage.clampSize(size));
+        model.addAttribute("vehicles", page.items());
+        model.addAttribute("page", page);
+        model.addAttribute("cursor", cursor);
         return "admin/vehicles/list";
     }
 
@@ -1,5 +1,7 @@
 package com.rentacar.controller;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.ReservationListItem;
 import com.rentacar.model.Reservation;
 import com.rentacar.service.ReservationService;
 import lombok.RequiredArgsConstructor;
@@ -9,8 +11,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
-
 @Controller
 @RequestMapping("/admin/reservations")
 @RequiredArgsConstructor
@@ -20,17 +20,22 @@ public class AdminReservationController {
     private final ReservationService reservationService;
 
     @GetMapping
-    public String listReservations(Model model) {
-        List<Reservation> reservations = reservationService.getAllReservations();
-        model.addAttribute("reservations", reservations);
-        log.info("Showing admin reservations list with {} items", reservations.size());
+    public String listReservations(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            Model model) {
+        KeysetPage<ReservationListItem> page = reservationService.getReservationListPage(cursor, KeysetPage.clampSize(size));
+        model.addAttribute("reservations", page.items());
+        model.addAttribute("page", page);
+        model.addAttribute("cursor", cursor);
+        log.info("Showing admin reservations page with {} items", page.items().size());
         return "admin/reservations/list";
     }
 
     @GetMapping("/{id}")
     public String viewReservation(@PathVariable Long id, Model model) {
         try {
-            Reservation reservation = reservationService.getReservationById(id)
+            Reservation reservation = reservationService.getReservationDetails(id)
                     .orElseThrow(() -> new IllegalArgumentException("Invalid reservation Id: " + id));
             
             model.addAttribute("reservation", reservation);
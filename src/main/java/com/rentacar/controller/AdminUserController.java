@@ -1,5 +1,7 @@
 package com.rentacar.controller;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.UserListItem;
 import com.rentacar.model.User;
 import com.rentacar.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -10,8 +12,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
-
 @Controller
 @RequestMapping("/admin/user-management")
 @RequiredArgsConstructor
@@ -21,9 +21,14 @@ public class AdminUserController {
     private final UserService userService;
 
     @GetMapping
-    public String listUsers(Model model) {
-        List<User> users = userService.getAllUsers();
-        model.addAttribute("users", users);
+    public String listUsers(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            Model model) {
+        KeysetPage<UserListItem> page = userService.getUserListPage(cursor, KeysetPage.clampSize(size));
+        model.addAttribute("users", page.items());
+        model.addAttribute("page", page);
+        model.addAttribute("cursor", cursor);
         return "admin/users/list";
     }
 
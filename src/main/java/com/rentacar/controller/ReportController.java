@@ -1,11 +1,13 @@
 package com.rentacar.controller;
 
+import com.rentacar.dto.ReservationListItem;
+import com.rentacar.dto.RevenueReport;
 import com.rentacar.model.Reservation;
 import com.rentacar.model.User;
 import com.rentacar.model.Vehicle;
-import com.rentacar.repository.ReservationRepository;
 import com.rentacar.repository.UserRepository;
 import com.rentacar.repository.VehicleRepository;
+import com.rentacar.service.RevenueReportService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
@@ -16,9 +18,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,7 +28,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ReportController {
 
-    private final ReservationRepository reservationRepository;
+    private final RevenueReportService revenueReportService;
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository;
 
@@ -54,48 +54,50 @@ public class ReportController {
             endDate = LocalDate.now();
         }
         
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
+        // Confirmed/completed reservations starting in the date range, from the daily rollup
+        RevenueReport report = revenueReportService.getReport(startDate, endDate);
         
-        // Get all confirmed/completed reservations in date range
-        List<Reservation> reservations = reservationRepository.findAll().stream()
-                .filter(r -> (r.getStatus() == Reservation.ReservationStatus.CONFIRMED || 
-                             r.getStatus() == Reservation.ReservationStatus.COMPLETED))
-                .filter(r -> !r.getStartDate().isAfter(endDateTime) && !r.getEndDate().isBefore(startDateTime))
-                .collect(Collectors.toList());
-        
-        // Calculate total revenue
-        BigDecimal totalRevenue = reservations.stream()
-                .map(Reservation::getTotalCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Revenue by vehicle type
-        Map<Vehicle.VehicleType, BigDecimal> revenueByType = new HashMap<>();
-        for (Reservation reservation : reservations) {
-            if (reservation.getVehicle() != null && reservation.getVehicle().getType() != null) {
-                Vehicle.VehicleType type = reservation.getVehicle().getType();
-                BigDecimal cost = reservation.getTotalCost() != null ? reservation.getTotalCost() : BigDecimal.ZERO;
-                BigDecimal currentRevenue = revenueByType.getOrDefault(type, BigDecimal.ZERO);
-                revenueByType.put(type, currentRevenue.add(cost));
-            }
-        }
-        
-        // Reservation count by vehicle type - safer implementation
-        Map<Vehicle.VehicleType, Long> countByType = reservations.stream()
-                .filter(r -> r.getVehicle() != null && r.getVehicle().getType() != null)
-                .collect(Collectors.groupingBy(r -> r.getVehicle().getType(), Collectors.counting()));
+        // Revenue and reservation count by vehicle type, for the table and the charts
+        Map<Vehicle.VehicleType, BigDecimal> revenueByType = new EnumMap<>(Vehicle.VehicleType.class);
+        Map<Vehicle.VehicleType, Long> countByType = new EnumMap<>(Vehicle.VehicleType.class);
+        report.byType().forEach((type, totals) -> {
+            revenueByType.put(type, totals.revenue());
+            countByType.put(type, totals.reservations());
+        });
         
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
-        model.addAttribute("reservations", reservations);
-        model.addAttribute("totalRevenue", totalRevenue);
+        model.addAttribute("totalRevenue", report.total().revenue());
         model.addAttribute("revenueByType", revenueByType);
         model.addAttribute("countByType", countByType);
-        model.addAttribute("reservationCount", reservations.size());
+        model.addAttribute("reservationCount", report.total().reservations());
+        model.addAttribute("byStatus", report.byStatus());
+        model.addAttribute("byDay", report.byDay());
         
         return "admin/reports/revenue";
     }
 
+    @GetMapping("/revenue/reservations")
+    public String showRevenueReservations(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Vehicle.VehicleType type,
+            @RequestParam(required = false) Reservation.ReservationStatus status,
+            Model model) {
+        List<ReservationListItem> reservations = revenueReportService.getReservations(startDate, endDate, type, status);
+        
+        model.addAttribute("startDate", startDate);
+        model.addAttribute("endDate", endDate);
+        model.addAttribute("type", type);
+        model.addAttribute("status", status);
+        model.addAttribute("reservations", reservations);
+        model.addAttribute("totalRevenue", reservations.stream()
+                .map(ReservationListItem::totalCost)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        
+        return "admin/reports/revenue-reservations";
+    }
+
     @GetMapping("/fleet")
     public String generateFleetReport(Model model) {
         List<Vehicle> vehicles = vehicleRepository.findAll();
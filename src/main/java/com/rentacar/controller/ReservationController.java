@@ -76,7 +76,7 @@ public class ReservationController {
 
     @GetMapping("/payment/{reservationId}")
     public String showPaymentPage(@PathVariable Long reservationId, Model model) {
-        Reservation reservation = reservationService.getReservationById(reservationId)
+        Reservation reservation = reservationService.getReservationDetails(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid reservation Id: " + reservationId));
         
         model.addAttribute("reservation", reservation);
@@ -117,7 +117,7 @@ public class ReservationController {
 
     @GetMapping("/details/{id}")
     public String getReservationDetails(@PathVariable Long id, Model model) {
-        Reservation reservation = reservationService.getReservationById(id)
+        Reservation reservation = reservationService.getReservationDetails(id)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid reservation Id: " + id));
         
         model.addAttribute("reservation", reservation);
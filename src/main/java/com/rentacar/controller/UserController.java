@@ -1,6 +1,6 @@
 package com.rentacar.controller;
 
-import com.rentacar.model.Reservation;
+import com.rentacar.dto.ReservationListItem;
 import com.rentacar.model.User;
 import com.rentacar.service.ReservationService;
 import com.rentacar.service.UserService;
@@ -94,7 +94,7 @@ public class UserController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = (User) userService.loadUserByUsername(auth.getName());
 
-        List<Reservation> reservations = reservationService.getReservationsByUser(user);
+        List<ReservationListItem> reservations = reservationService.getReservationListByUser(user);
         model.addAttribute("reservations", reservations);
 
         return "user/reservations";
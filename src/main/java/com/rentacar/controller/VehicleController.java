@@ -1,6 +1,9 @@
 package com.rentacar.controller;
 
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.dto.VehicleSearchCriteria;
 import com.rentacar.model.Vehicle;
+import com.rentacar.service.VehicleSearchService;
 import com.rentacar.service.VehicleService;
 import com.rentacar.util.FileUploadUtil;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -22,6 +26,7 @@ import java.util.List;
 public class VehicleController {
 
     private final VehicleService vehicleService;
+    private final VehicleSearchService vehicleSearchService;
     private static final String VEHICLE_UPLOAD_DIR = "src/main/resources/static/images/vehicles";
 
     @GetMapping
@@ -39,52 +44,30 @@ public class VehicleController {
             @RequestParam(required = false) Double latitude,
             @RequestParam(required = false) Double longitude,
             @RequestParam(required = false, defaultValue = "10") Double radius,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minSeats,
+            @RequestParam(required = false) String fuelType,
             Model model) {
         
-        List<Vehicle> vehicles;
-        
-        if (latitude != null && longitude != null) {
-            vehicles = vehicleService.getVehiclesNearLocation(latitude, longitude, radius);
-        } else if (type != null) {
-            vehicles = vehicleService.getVehiclesByType(type);
-        } else if (startDate != null && endDate != null) {
-            vehicles = vehicleService.getAvailableVehiclesInTimeRange(startDate, endDate);
-        } else {
-            vehicles = vehicleService.getAllAvailableVehicles();
-        }
+        // All filters apply together instead of the first one that is set
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(latitude, longitude, radius, type,
+                startDate, endDate, minPrice, maxPrice, minSeats,
+                fuelType != null && !fuelType.isBlank() ? fuelType.trim() : null);
+        List<VehicleDTO> vehicles = vehicleSearchService.search(criteria);
         
         model.addAttribute("vehicles", vehicles);
+        model.addAttribute("criteria", criteria);
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
         
-        return "vehicles/search-results";
+        return "vehicles/list";
     }
 
     @GetMapping("/map")
-    public String viewMap(Model model) {
-        try {
-            // Get all vehicles but keep data simple - avoid complex serialization
-            List<Vehicle> vehicles = vehicleService.getAllAvailableVehicles();
-            
-            // Log what we're getting
-            System.out.println("Loading vehicle map with " + vehicles.size() + " vehicles");
-            
-            // Add the simplified list to model
-            model.addAttribute("vehicles", vehicles);
-            
-            // Use a simplified view name to avoid potential path issues
-            return "vehicles/map";
-        } catch (Exception e) {
-            // Log the error for debugging
-            System.err.println("Error loading vehicle map: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Add error to model
-            model.addAttribute("error", "Error loading vehicle map: " + e.getMessage());
-            
-            // Return error view
-            return "error/error";
-        }
+    public String viewMap() {
+        // Markers are loaded per viewport from /api/vehicles/public/clusters
+        return "vehicles/map";
     }
 
     @GetMapping("/{id}")
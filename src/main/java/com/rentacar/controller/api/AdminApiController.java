@@ -0,0 +1,50 @@
+package com.rentacar.controller.api;
+
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.ReservationDTO;
+import com.rentacar.dto.UserListItem;
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.service.ReservationService;
+import com.rentacar.service.UserService;
+import com.rentacar.service.VehicleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Keyset-paginated admin listings. Each response carries {@code nextCursor}, which is passed back as
+ * {@code cursor} for the next page and is null on the last one.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminApiController {
+
+    private final VehicleService vehicleService;
+    private final ReservationService reservationService;
+    private final UserService userService;
+
+    @GetMapping("/vehicles")
+    public KeysetPage<VehicleDTO> vehicles(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        return vehicleService.getVehiclePage(cursor, KeysetPage.clampSize(size)).map(VehicleDTO::new);
+    }
+
+    // Newest first
+    @GetMapping("/reservations")
+    public KeysetPage<ReservationDTO> reservations(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        return reservationService.getReservationPage(cursor, KeysetPage.clampSize(size)).map(ReservationDTO::new);
+    }
+
+    @GetMapping("/users")
+    public KeysetPage<UserListItem> users(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size) {
+        return userService.getUserListPage(cursor, KeysetPage.clampSize(size));
+    }
+}
@@ -0,0 +1,66 @@
+package com.rentacar.controller.api;
+
+import com.rentacar.model.Geofence;
+import com.rentacar.service.GeofenceService;
+import lombok.RequiredArgsConstructor;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin management of geofences. Areas are exchanged as WKT polygons in WGS84 with longitude first,
+ * e.g. {@code POLYGON((20.85 52.1, 21.27 52.1, 21.27 52.37, 20.85 52.37, 20.85 52.1))}.
+ */
+@RestController
+@RequestMapping("/api/admin/geofences")
+@RequiredArgsConstructor
+public class GeofenceApiController {
+
+    private final GeofenceService geofenceService;
+    private final GeometryFactory geometryFactory;
+
+    @GetMapping
+    public List<GeofenceView> list() {
+        return geofenceService.getAllGeofences().stream().map(GeofenceView::of).toList();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody Map<String, String> body) {
+        String name = body.get("name");
+        String wkt = body.get("area");
+        if (name == null || name.isBlank() || wkt == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "name and area are required"));
+        }
+        Geometry area;
+        try {
+            area = new WKTReader(geometryFactory).read(wkt);
+        } catch (ParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid WKT: " + e.getMessage()));
+        }
+        if (!(area instanceof Polygon polygon) || !polygon.isValid()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "area must be a valid polygon"));
+        }
+        return ResponseEntity.ok(GeofenceView.of(geofenceService.createGeofence(name, polygon)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable Long id) {
+        geofenceService.deleteGeofence(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    public record GeofenceView(Long id, String name, boolean active, String area) {
+
+        static GeofenceView of(Geofence geofence) {
+            return new GeofenceView(geofence.getId(), geofence.getName(), geofence.isActive(),
+                    geofence.getArea() != null ? geofence.getArea().toText() : null);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.rentacar.controller.api;
+
+import com.rentacar.monitoring.SqlOffender;
+import com.rentacar.monitoring.SqlOffenderLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Recent requests that exceeded the per-request SQL budget (admin only).
+ */
+@RestController
+@RequestMapping("/api/admin/sql-offenders")
+@RequiredArgsConstructor
+public class SqlOffenderApiController {
+
+    private final SqlOffenderLog offenderLog;
+
+    @GetMapping
+    public List<SqlOffender> recent() {
+        return offenderLog.recent();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        offenderLog.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,16 +1,34 @@
 package com.rentacar.controller.api;
 
+import com.rentacar.dto.LocationPing;
+import com.rentacar.geo.Neighbor;
 import com.rentacar.model.Vehicle;
+import com.rentacar.service.FleetChangeLog;
+import com.rentacar.service.TelemetryIngestor;
+import com.rentacar.service.VehicleJsonCache;
 import com.rentacar.service.VehicleService;
+import com.rentacar.service.VehicleStreamService;
+import com.rentacar.service.VehicleTileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/vehicles")
@@ -18,26 +36,138 @@ import java.util.stream.Collectors;
 @Slf4j
 public class VehicleApiController {
 
+    private static final int MAX_NEAREST = 200;
+    private static final String FLEET_VERSION_HEADER = "X-Fleet-Version";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType VECTOR_TILE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private static final byte[] EMPTY = {};
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+    private static final byte[] ARRAY_SEPARATOR = {','};
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+    private static final byte[] DISTANCE_FIELD = ",\"distance\":".getBytes(StandardCharsets.US_ASCII);
+
     private final VehicleService vehicleService;
+    private final VehicleTileService vehicleTileService;
+    private final VehicleJsonCache vehicleJsonCache;
+    private final FleetChangeLog fleetChangeLog;
+    private final TelemetryIngestor telemetryIngestor;
+    private final VehicleStreamService vehicleStreamService;
 
+    /**
+     * Streams every available vehicle with coordinates, as a JSON array or, when asked for with
+     * {@code format=ndjson} or {@code Accept: application/x-ndjson}, as one JSON object per line.
+     * Rows are read from a database cursor and written as their cached JSON, so memory use is
+     * independent of fleet size.
+     */
     @GetMapping("/public/all")
-    public ResponseEntity<?> getAllAvailableVehicles() {
+    public ResponseEntity<StreamingResponseBody> getAllAvailableVehicles(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) {
+        
+        boolean ndjson = "ndjson".equalsIgnoreCase(format)
+                || (accept != null && accept.contains(NDJSON.toString()));
+        
+        // Taken before reading, so a client resuming from it with /public/changes misses nothing
+        String fleetVersion = fleetChangeLog.currentVersion();
+        String etag = "\"all-" + (ndjson ? "ndjson-" : "json-") + fleetVersion + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            try {
+                long readStamp = vehicleJsonCache.stamp();
+                boolean[] first = {true};
+                outputStream.write(ndjson ? EMPTY : ARRAY_START);
+                vehicleService.forEachAvailableVehicleWithLocation(vehicle -> {
+                    try {
+                        if (!ndjson && !first[0]) {
+                            outputStream.write(ARRAY_SEPARATOR);
+                        }
+                        first[0] = false;
+                        outputStream.write(vehicleJsonCache.getJson(vehicle, readStamp));
+                        if (ndjson) {
+                            outputStream.write(LINE_SEPARATOR);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                outputStream.write(ndjson ? EMPTY : ARRAY_END);
+            } catch (RuntimeException e) {
+                // Headers are already committed at this point, the client sees a truncated body
+                log.error("Error streaming all vehicles", e);
+                throw e;
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(FLEET_VERSION_HEADER, fleetVersion)
+                .body(body);
+    }
+
+    /**
+     * Vehicles added to or updated in the public list, and ids removed from it, since the fleet
+     * version {@code since} (the {@code X-Fleet-Version} of /public/all or the {@code version} of
+     * a previous call). {@code reset: true} means the version is unknown and the client has to
+     * reload /public/all.
+     */
+    @GetMapping("/public/changes")
+    public ResponseEntity<?> getVehicleChanges(@RequestParam String since, WebRequest request) {
         try {
-            List<Vehicle> vehicles = vehicleService.getAllAvailableVehicles();
+            FleetChangeLog.Changes changes = fleetChangeLog.changesSince(since);
+            // A reset does not depend on since, which is only echoed once it is a known version
+            String etag = "\"" + (changes.reset() ? "reset" : since) + "-" + changes.version() + "\"";
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
             
-            // Filter out vehicles without coordinates
-            vehicles = vehicles.stream()
-                .filter(v -> v.getLatitude() != null && v.getLongitude() != null)
-                .collect(Collectors.toList());
+            List<byte[]> upserts = vehicleJsonCache.getJson(changes.upserts());
+            List<Long> deletions = new ArrayList<>(changes.deletions());
+            for (int i = 0; i < upserts.size(); i++) {
+                if (upserts.get(i) == null) {
+                    deletions.add(changes.upserts().get(i));
+                }
+            }
             
-            // Convert to simple maps to avoid potential serialization issues
-            List<Map<String, Object>> simplifiedVehicles = vehicles.stream()
-                .map(this::convertToSimpleMap)
-                .collect(Collectors.toList());
-                
-            return ResponseEntity.ok(simplifiedVehicles);
+            StreamingResponseBody body = outputStream -> {
+                outputStream.write(("{\"version\":\"" + changes.version() + "\",\"reset\":" + changes.reset()
+                        + ",\"upserts\":").getBytes(StandardCharsets.US_ASCII));
+                outputStream.write(ARRAY_START);
+                boolean first = true;
+                for (byte[] json : upserts) {
+                    if (json == null) {
+                        continue;
+                    }
+                    if (!first) {
+                        outputStream.write(ARRAY_SEPARATOR);
+                    }
+                    first = false;
+                    outputStream.write(json);
+                }
+                outputStream.write(ARRAY_END);
+                outputStream.write(",\"deletions\":".getBytes(StandardCharsets.US_ASCII));
+                outputStream.write(ARRAY_START);
+                for (int i = 0; i < deletions.size(); i++) {
+                    if (i > 0) {
+                        outputStream.write(ARRAY_SEPARATOR);
+                    }
+                    outputStream.write(Long.toString(deletions.get(i)).getBytes(StandardCharsets.US_ASCII));
+                }
+                outputStream.write(ARRAY_END);
+                outputStream.write('}');
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .body(body);
         } catch (Exception e) {
-            log.error("Error fetching all vehicles", e);
+            log.error("Error fetching vehicle changes", e);
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
@@ -50,77 +180,122 @@ public class VehicleApiController {
             @RequestParam(required = false) Vehicle.VehicleType type) {
         
         try {
-            List<Vehicle> vehicles = vehicleService.getVehiclesNearLocation(latitude, longitude, radius);
-            
-            // Apply type filter if provided
-            if (type != null) {
-                vehicles = vehicles.stream()
-                    .filter(v -> v.getType() == type)
-                    .collect(Collectors.toList());
-            }
-            
-            // Convert to simple maps to avoid potential serialization issues
-            List<Map<String, Object>> simplifiedVehicles = vehicles.stream()
-                .map(vehicle -> {
-                    Map<String, Object> map = convertToSimpleMap(vehicle);
-                    
-                    // Calculate and add distance for nearby vehicles
-                    if (vehicle.getLatitude() != null && vehicle.getLongitude() != null) {
-                        double distance = calculateDistance(
-                            latitude, longitude, 
-                            vehicle.getLatitude(), vehicle.getLongitude());
-                        map.put("distance", distance);
-                    }
-                    
-                    return map;
-                })
-                .collect(Collectors.toList());
-                
-            return ResponseEntity.ok(simplifiedVehicles);
+            // Type filter and distances are applied by the spatial lookup itself, nearest first
+            List<Neighbor> neighbors = vehicleService.findWithinRadius(latitude, longitude, radius, type);
+            return jsonWithDistances(neighbors);
         } catch (Exception e) {
             log.error("Error fetching nearby vehicles", e);
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
-    
-    // Helper method to calculate distance between two points (Haversine formula)
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of the earth in km
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+
+    @GetMapping("/public/nearest")
+    public ResponseEntity<?> getNearestVehicles(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "20") int k,
+            @RequestParam(required = false) Vehicle.VehicleType type) {
         
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-                 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        if (k < 1 || k > MAX_NEAREST) {
+            return ResponseEntity.badRequest().body(Map.of("error", "k must be between 1 and " + MAX_NEAREST));
+        }
         
-        return R * c;
+        try {
+            List<Neighbor> neighbors = vehicleService.findNearestAvailable(latitude, longitude, k, type);
+            return jsonWithDistances(neighbors);
+        } catch (Exception e) {
+            log.error("Error fetching nearest vehicles", e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
     }
 
-    // Helper method to convert Vehicle to a simple Map to avoid serialization issues
-    private Map<String, Object> convertToSimpleMap(Vehicle vehicle) {
-        Map<String, Object> map = new HashMap<>();
+    // Concatenates the cached vehicle JSON, splicing the distance in before each closing brace
+    private ResponseEntity<StreamingResponseBody> jsonWithDistances(List<Neighbor> neighbors) {
+        List<byte[]> vehicles = vehicleJsonCache.getJson(neighbors.stream().map(Neighbor::id).toList());
+        StreamingResponseBody body = outputStream -> {
+            outputStream.write(ARRAY_START);
+            boolean first = true;
+            for (int i = 0; i < vehicles.size(); i++) {
+                byte[] json = vehicles.get(i);
+                if (json == null) {
+                    continue;
+                }
+                if (!first) {
+                    outputStream.write(ARRAY_SEPARATOR);
+                }
+                first = false;
+                outputStream.write(json, 0, json.length - 1);
+                outputStream.write(DISTANCE_FIELD);
+                outputStream.write(Double.toString(neighbors.get(i).distanceKm()).getBytes(StandardCharsets.US_ASCII));
+                outputStream.write('}');
+            }
+            outputStream.write(ARRAY_END);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/public/clusters")
+    public ResponseEntity<?> getVehicleClusters(
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam int zoom) {
         
-        map.put("id", vehicle.getId());
-        map.put("brand", vehicle.getBrand());
-        map.put("model", vehicle.getModel());
-        map.put("year", vehicle.getYear());
-        map.put("type", vehicle.getType() != null ? vehicle.getType().name() : null);
-        map.put("color", vehicle.getColor());
-        map.put("licensePlate", vehicle.getLicensePlate());
-        map.put("seats", vehicle.getSeats());
-        map.put("fuelType", vehicle.getFuelType());
-        map.put("dailyRate", vehicle.getDailyRate());
-        map.put("available", vehicle.isAvailable());
-        map.put("latitude", vehicle.getLatitude());
-        map.put("longitude", vehicle.getLongitude());
-        map.put("imageUrl", vehicle.getImageUrl());
-        map.put("rating", vehicle.getRating());
-        map.put("ratingCount", vehicle.getRatingCount());
+        if (south > north || zoom < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid viewport"));
+        }
+        
+        try {
+            return ResponseEntity.ok(vehicleService.getVehicleClusters(south, west, north, east, zoom));
+        } catch (Exception e) {
+            log.error("Error fetching vehicle clusters", e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Server-Sent Events stream of available vehicles moving ({@code position}) and of vehicles
+     * leaving the box or becoming unavailable ({@code removed}). Without a bounding box every change
+     * is sent. A lagging client gets only the latest position of each vehicle.
+     */
+    @GetMapping(value = "/public/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamVehicleChanges(
+            @RequestParam(required = false) Double south,
+            @RequestParam(required = false) Double west,
+            @RequestParam(required = false) Double north,
+            @RequestParam(required = false) Double east) {
         
-        return map;
+        VehicleStreamService.Bounds bounds = null;
+        if (south != null || west != null || north != null || east != null) {
+            if (south == null || west == null || north == null || east == null || south > north) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bounding box");
+            }
+            bounds = new VehicleStreamService.Bounds(south, west, north, east);
+        }
+        SseEmitter emitter = vehicleStreamService.subscribe(bounds);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many stream subscribers");
+        }
+        return emitter;
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}.mvt")
+    public ResponseEntity<?> getVehicleTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        if (!VehicleTileService.isValidTile(z, x, y)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid tile coordinates"));
+        }
+        try {
+            byte[] tile = vehicleTileService.getTile(z, x, y);
+            // Positions change constantly, so clients only keep tiles briefly
+            return ResponseEntity.ok()
+                    .contentType(VECTOR_TILE)
+                    .cacheControl(CacheControl.maxAge(10, TimeUnit.SECONDS))
+                    .body(tile);
+        } catch (Exception e) {
+            log.error("Error building vehicle tile {}/{}/{}", z, x, y, e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}/location")
@@ -143,4 +318,14 @@ public class VehicleApiController {
             return ResponseEntity.internalServerError().body("Error updating vehicle location: " + e.getMessage());
         }
     }
+
+    /**
+     * Batch of position reports. They are buffered and written with the next flush, so the
+     * response only says how many were accepted.
+     */
+    @PostMapping("/telemetry")
+    public ResponseEntity<Map<String, Integer>> ingestTelemetry(@RequestBody List<LocationPing> pings) {
+        int accepted = telemetryIngestor.accept(pings);
+        return ResponseEntity.accepted().body(Map.of("accepted", accepted, "rejected", pings.size() - accepted));
+    }
 }
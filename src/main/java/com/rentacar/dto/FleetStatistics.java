@@ -0,0 +1,12 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.Reservation;
+
+import java.util.Map;
+
+/**
+ * Entity counts shown on the admin dashboard.
+ */
+public record FleetStatistics(long vehicles, long users, long reservations,
+                              Map<Reservation.ReservationStatus, Long> reservationsByStatus) {
+}
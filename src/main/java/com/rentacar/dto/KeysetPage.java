@@ -0,0 +1,39 @@
+package com.rentacar.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is the sort key of the last item and is
+ * passed back as {@code cursor} to get the following page; it is null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, Long nextCursor) {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(MAX_SIZE, size));
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code size + 1}; the extra row only tells
+     * that another page exists and is dropped.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, ToLongFunction<T> key) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new KeysetPage<>(items, key.applyAsLong(items.get(size - 1)));
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
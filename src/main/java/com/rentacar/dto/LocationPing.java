@@ -0,0 +1,21 @@
+package com.rentacar.dto;
+
+import java.time.Instant;
+
+/**
+ * One position report of a vehicle. {@code timestamp} is when the position was taken; reports
+ * without it are stamped on arrival.
+ */
+public record LocationPing(Long vehicleId, Double latitude, Double longitude, Instant timestamp) {
+
+    public boolean isValid() {
+        return vehicleId != null && latitude != null && longitude != null
+                && latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180
+                // 0,0 is what unset coordinates end up as, never a real vehicle position
+                && !(latitude == 0 && longitude == 0);
+    }
+
+    public LocationPing withTimestamp(Instant timestamp) {
+        return new LocationPing(vehicleId, latitude, longitude, timestamp);
+    }
+}
@@ -0,0 +1,32 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the reservation list pages, read with a JPQL constructor expression so a listing is
+ * a single joined query over the columns it shows instead of loading the reservation entities and
+ * their user and vehicle.
+ */
+public record ReservationListItem(
+        Long id,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        BigDecimal totalCost,
+        Reservation.ReservationStatus status,
+        String stripePaymentId,
+        Integer rating,
+        Long vehicleId,
+        String vehicleBrand,
+        String vehicleModel,
+        String vehicleLicensePlate,
+        Vehicle.VehicleType vehicleType,
+        int vehicleYear,
+        String vehicleImageUrl,
+        String userEmail,
+        String userFirstName,
+        String userLastName) {
+}
@@ -0,0 +1,31 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Revenue of the reservations starting in a period, in total and per vehicle type, status and
+ * start day.
+ */
+public record RevenueReport(
+        LocalDate startDate,
+        LocalDate endDate,
+        Totals total,
+        Map<Vehicle.VehicleType, Totals> byType,
+        Map<Reservation.ReservationStatus, Totals> byStatus,
+        SortedMap<LocalDate, Totals> byDay) {
+
+    public record Totals(long reservations, BigDecimal revenue) {
+
+        public static final Totals ZERO = new Totals(0, BigDecimal.ZERO);
+
+        public Totals plus(Totals other) {
+            return new Totals(reservations + other.reservations, revenue.add(other.revenue));
+        }
+    }
+}
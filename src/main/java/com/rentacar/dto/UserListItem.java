@@ -0,0 +1,27 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.User;
+import com.rentacar.repository.UserReservationCount;
+
+/**
+ * One row of the user listings: the user's own columns and reservation counts taken with one
+ * aggregate query per page, without loading the reservations themselves.
+ */
+public record UserListItem(
+        Long id,
+        String email,
+        String firstName,
+        String lastName,
+        String phoneNumber,
+        User.Role role,
+        boolean enabled,
+        long reservationCount,
+        long activeReservationCount) {
+
+    public static UserListItem of(User user, UserReservationCount counts) {
+        return new UserListItem(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getPhoneNumber(), user.getRole(), user.isEnabled(),
+                counts != null ? counts.getReservations() : 0,
+                counts != null ? counts.getActive() : 0);
+    }
+}
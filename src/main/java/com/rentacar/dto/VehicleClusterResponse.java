@@ -0,0 +1,20 @@
+package com.rentacar.dto;
+
+import com.rentacar.geo.VehicleCluster;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleClusterResponse {
+
+    private int zoom;
+    // true when the viewport is summarized as clusters, false when individual vehicles are listed
+    private boolean clustered;
+    private List<VehicleCluster> clusters;
+    private List<VehicleDTO> vehicles;
+}
@@ -0,0 +1,42 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.Vehicle;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the combined vehicle search. Every field is optional; a null field does not filter.
+ * The location filter needs both coordinates and the time range filter both dates.
+ */
+public record VehicleSearchCriteria(
+        Double latitude,
+        Double longitude,
+        Double radiusKm,
+        Vehicle.VehicleType type,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        Integer minSeats,
+        String fuelType) {
+
+    public static final double DEFAULT_RADIUS_KM = 10;
+
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
+
+    public boolean hasTimeRange() {
+        return startDate != null && endDate != null;
+    }
+
+    public double radiusOrDefault() {
+        return radiusKm != null ? radiusKm : DEFAULT_RADIUS_KM;
+    }
+
+    public VehicleSearchCriteria withoutTimeRange() {
+        return new VehicleSearchCriteria(latitude, longitude, radiusKm, type, null, null,
+                minPrice, maxPrice, minSeats, fuelType);
+    }
+}
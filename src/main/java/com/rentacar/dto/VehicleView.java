@@ -0,0 +1,48 @@
+package com.rentacar.dto;
+
+import com.rentacar.model.Vehicle;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable public view of a vehicle, the shape returned by the public vehicle API. Instances are
+ * serialized once and reused through {@link com.rentacar.service.VehicleJsonCache}.
+ */
+public record VehicleView(
+        Long id,
+        String brand,
+        String model,
+        int year,
+        String type,
+        String color,
+        String licensePlate,
+        int seats,
+        String fuelType,
+        BigDecimal dailyRate,
+        boolean available,
+        Double latitude,
+        Double longitude,
+        String imageUrl,
+        Double rating,
+        Integer ratingCount) {
+
+    public static VehicleView of(Vehicle vehicle) {
+        return new VehicleView(
+                vehicle.getId(),
+                vehicle.getBrand(),
+                vehicle.getModel(),
+                vehicle.getYear(),
+                vehicle.getType() != null ? vehicle.getType().name() : null,
+                vehicle.getColor(),
+                vehicle.getLicensePlate(),
+                vehicle.getSeats(),
+                vehicle.getFuelType(),
+                vehicle.getDailyRate(),
+                vehicle.isAvailable(),
+                vehicle.getLatitude(),
+                vehicle.getLongitude(),
+                vehicle.getImageUrl(),
+                vehicle.getRating(),
+                vehicle.getRatingCount());
+    }
+}
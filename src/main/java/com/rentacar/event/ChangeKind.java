@@ -0,0 +1,10 @@
+package com.rentacar.event;
+
+/**
+ * What happened to the entity a change event is about.
+ */
+public enum ChangeKind {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,12 @@
+package com.rentacar.event;
+
+/**
+ * Published when a vehicle position change crosses the boundary of a geofence.
+ */
+public record GeofenceTransitionEvent(long vehicleId, long geofenceId, String geofenceName,
+                                      Transition transition, double latitude, double longitude) {
+
+    public enum Transition {
+        ENTER, EXIT
+    }
+}
@@ -0,0 +1,36 @@
+package com.rentacar.event;
+
+import com.rentacar.model.Reservation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published once a reservation is created or its status change is committed. {@code holdExpiresAt}
+ * is set while a PENDING reservation waits for payment; {@code previousStatus} is null for a new
+ * reservation.
+ */
+public record ReservationChangedEvent(long reservationId, long vehicleId, LocalDateTime startDate,
+                                      LocalDateTime endDate, Reservation.ReservationStatus status,
+                                      LocalDateTime holdExpiresAt,
+                                      Reservation.ReservationStatus previousStatus) {
+
+    // Without a previous status, as for a newly created reservation
+    public ReservationChangedEvent(long reservationId, long vehicleId, LocalDateTime startDate,
+                                   LocalDateTime endDate, Reservation.ReservationStatus status,
+                                   LocalDateTime holdExpiresAt) {
+        this(reservationId, vehicleId, startDate, endDate, status, holdExpiresAt, null);
+    }
+
+    public static ReservationChangedEvent of(Reservation reservation, Reservation.ReservationStatus previousStatus) {
+        return new ReservationChangedEvent(reservation.getId(), reservation.getVehicle().getId(),
+                reservation.getStartDate(), reservation.getEndDate(), reservation.getStatus(),
+                reservation.getHoldExpiresAt(), previousStatus);
+    }
+
+    /**
+     * Whether the reservation no longer blocks its vehicle.
+     */
+    public boolean isReleased() {
+        return status == Reservation.ReservationStatus.CANCELED;
+    }
+}
@@ -0,0 +1,12 @@
+package com.rentacar.event;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published once reservations deleted together with their user are committed; no
+ * {@link ReservationChangedEvent} reports them. Reservations deleted with their vehicle are reported
+ * by its {@link VehicleChangedEvent} instead.
+ */
+public record ReservationsDeletedEvent(List<Long> reservationIds, Set<Long> vehicleIds) {
+}
@@ -0,0 +1,7 @@
+package com.rentacar.event;
+
+/**
+ * Published once a user is registered or deleted.
+ */
+public record UserChangedEvent(long userId, ChangeKind kind) {
+}
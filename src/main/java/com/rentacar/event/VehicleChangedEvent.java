@@ -0,0 +1,20 @@
+package com.rentacar.event;
+
+import com.rentacar.geo.VehicleSnapshot;
+
+/**
+ * Published once a vehicle change is committed. {@code previous} is null for new vehicles and
+ * {@code current} is null for deleted ones; either is also null when the vehicle has no position,
+ * so {@code kind} is what tells creation and deletion apart.
+ */
+public record VehicleChangedEvent(long vehicleId, VehicleSnapshot previous, VehicleSnapshot current, ChangeKind kind) {
+
+    // An update of an existing vehicle, such as a position report
+    public VehicleChangedEvent(long vehicleId, VehicleSnapshot previous, VehicleSnapshot current) {
+        this(vehicleId, previous, current, ChangeKind.UPDATED);
+    }
+
+    public boolean isDeleted() {
+        return kind == ChangeKind.DELETED;
+    }
+}
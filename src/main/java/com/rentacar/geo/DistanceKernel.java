@@ -0,0 +1,105 @@
+package com.rentacar.geo;
+
+/**
+ * Haversine distances from one origin to many points held as struct-of-arrays coordinates.
+ * <p>
+ * Points are passed as latitude and longitude in radians plus the cosine of the latitude, so the
+ * per-point work is two sines, a square root and an arcsine; everything that depends only on the
+ * origin is computed once in the constructor. The loops are plain counted loops over primitive
+ * arrays without branches or calls other than intrinsics, which is the shape the JIT unrolls and
+ * vectorizes best.
+ */
+public final class DistanceKernel {
+
+    // Beyond this radius, or this close to the poles, the flat-earth approximation of the
+    // pre-filter is no longer a safe over-estimate and every point is passed on
+    static final double MAX_PREFILTER_RADIUS_KM = 200;
+    static final double MAX_PREFILTER_LATITUDE = 80;
+
+    // The approximation over-estimates by less than 0.2% inside the limits above; 1% keeps a margin
+    private static final double PREFILTER_SLACK = 1.01;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private final double originLatitude;
+    private final double originLatRad;
+    private final double originLonRad;
+    private final double originCosLat;
+
+    public DistanceKernel(double latitude, double longitude) {
+        this.originLatitude = latitude;
+        this.originLatRad = Math.toRadians(latitude);
+        this.originLonRad = Math.toRadians(longitude);
+        this.originCosLat = Math.cos(originLatRad);
+    }
+
+    /**
+     * Distance in km to a single point given in degrees.
+     */
+    public double distanceKm(double latitude, double longitude) {
+        double latRad = Math.toRadians(latitude);
+        return distanceKm(latRad, Math.toRadians(longitude), Math.cos(latRad));
+    }
+
+    private double distanceKm(double latRad, double lonRad, double cosLat) {
+        double sinLat = Math.sin((latRad - originLatRad) * 0.5);
+        double sinLon = Math.sin((lonRad - originLonRad) * 0.5);
+        double a = sinLat * sinLat + originCosLat * cosLat * sinLon * sinLon;
+        return 2 * GeoUtils.EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+
+    /**
+     * Writes the distance in km to each of the first {@code count} points into {@code distances}.
+     */
+    public void distancesKm(double[] latRad, double[] lonRad, double[] cosLat, int count, double[] distances) {
+        for (int i = 0; i < count; i++) {
+            double sinLat = Math.sin((latRad[i] - originLatRad) * 0.5);
+            double sinLon = Math.sin((lonRad[i] - originLonRad) * 0.5);
+            double a = sinLat * sinLat + originCosLat * cosLat[i] * sinLon * sinLon;
+            distances[i] = 2 * GeoUtils.EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, a)));
+        }
+    }
+
+    /**
+     * Equirectangular pre-filter: writes the indexes of the points that may lie within
+     * {@code radiusKm} into {@code candidates} and returns how many there are. It never drops a
+     * point inside the radius but may keep some just outside, so candidates still need the exact
+     * distance. Where the approximation is not safe every point is a candidate.
+     */
+    public int selectCandidates(double[] latRad, double[] lonRad, double[] cosLat, int count, double radiusKm,
+                                int[] candidates) {
+        if (radiusKm > MAX_PREFILTER_RADIUS_KM
+                || Math.abs(originLatitude) + radiusKm / GeoUtils.KM_PER_DEGREE > MAX_PREFILTER_LATITUDE) {
+            for (int i = 0; i < count; i++) {
+                candidates[i] = i;
+            }
+            return count;
+        }
+
+        double limit = radiusKm * PREFILTER_SLACK / GeoUtils.EARTH_RADIUS_KM;
+        double limitSquared = limit * limit;
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            double dLat = latRad[i] - originLatRad;
+            double dLon = lonRad[i] - originLonRad;
+            dLon -= TWO_PI * Math.rint(dLon / TWO_PI);
+            double x = dLon * 0.5 * (originCosLat + cosLat[i]);
+            // Branch-free compaction: always store, only advance when the point qualifies
+            candidates[selected] = i;
+            selected += (x * x + dLat * dLat <= limitSquared) ? 1 : 0;
+        }
+        return selected;
+    }
+
+    /**
+     * Exact distances for the candidates picked by {@link #selectCandidates}, written to
+     * {@code distances} at the same positions as in {@code candidates}.
+     */
+    public void distancesKm(double[] latRad, double[] lonRad, double[] cosLat, int[] candidates, int count,
+                            double[] distances) {
+        for (int k = 0; k < count; k++) {
+            int i = candidates[k];
+            distances[k] = distanceKm(latRad[i], lonRad[i], cosLat[i]);
+        }
+    }
+}
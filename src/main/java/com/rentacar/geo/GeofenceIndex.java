@@ -0,0 +1,74 @@
+package com.rentacar.geo;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable point-in-zone lookup over a set of polygons. An STRtree on the zone envelopes narrows a
+ * point down to the few zones whose bounding box contains it, and only those get an exact test
+ * against their {@link PreparedGeometry}, which caches the edge index between tests. Changes to
+ * the zones are applied by building a new index.
+ */
+public final class GeofenceIndex {
+
+    public static final GeofenceIndex EMPTY = new GeofenceIndex(Map.of(), Map.of());
+
+    private static final long[] NONE = {};
+
+    private final STRtree tree = new STRtree();
+    private final Map<Long, String> names;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    /**
+     * @param zones zone geometry by zone id, coordinates as (longitude, latitude)
+     * @param names zone names by zone id, used for events and logging
+     */
+    public GeofenceIndex(Map<Long, ? extends Geometry> zones, Map<Long, String> names) {
+        this.names = Map.copyOf(names);
+        zones.forEach((id, geometry) ->
+                tree.insert(geometry.getEnvelopeInternal(), new Zone(id, PreparedGeometryFactory.prepare(geometry))));
+        tree.build();
+    }
+
+    /**
+     * Ids of the zones covering the position (boundary included), in ascending order.
+     */
+    public long[] zonesAt(double latitude, double longitude) {
+        Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+        @SuppressWarnings("unchecked")
+        List<Zone> candidates = tree.query(point.getEnvelopeInternal());
+        if (candidates.isEmpty()) {
+            return NONE;
+        }
+        long[] ids = new long[candidates.size()];
+        int count = 0;
+        for (Zone zone : candidates) {
+            if (zone.geometry().covers(point)) {
+                ids[count++] = zone.id();
+            }
+        }
+        long[] result = Arrays.copyOf(ids, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    public String name(long zoneId) {
+        return names.get(zoneId);
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    private record Zone(long id, PreparedGeometry geometry) {
+    }
+}
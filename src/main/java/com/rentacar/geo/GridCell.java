@@ -0,0 +1,62 @@
+package com.rentacar.geo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Vehicles of one grid cell, with their coordinates also kept as struct-of-arrays in radians so
+ * {@link DistanceKernel} can process the whole cell in one pass. Removal swaps in the last vehicle,
+ * so slots stay dense and their order is not stable.
+ */
+final class GridCell {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    VehicleSnapshot[] vehicles = new VehicleSnapshot[INITIAL_CAPACITY];
+    double[] latRad = new double[INITIAL_CAPACITY];
+    double[] lonRad = new double[INITIAL_CAPACITY];
+    double[] cosLat = new double[INITIAL_CAPACITY];
+    int size;
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    void add(VehicleSnapshot snapshot) {
+        if (size == vehicles.length) {
+            int capacity = size * 2;
+            vehicles = Arrays.copyOf(vehicles, capacity);
+            latRad = Arrays.copyOf(latRad, capacity);
+            lonRad = Arrays.copyOf(lonRad, capacity);
+            cosLat = Arrays.copyOf(cosLat, capacity);
+        }
+        slots.put(snapshot.id(), size);
+        set(size, snapshot);
+        size++;
+    }
+
+    void remove(long vehicleId) {
+        Integer slot = slots.remove(vehicleId);
+        if (slot == null) {
+            return;
+        }
+        int last = --size;
+        if (slot != last) {
+            VehicleSnapshot moved = vehicles[last];
+            set(slot, moved);
+            slots.put(moved.id(), slot);
+        }
+        vehicles[last] = null;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void set(int slot, VehicleSnapshot snapshot) {
+        double lat = Math.toRadians(snapshot.latitude());
+        vehicles[slot] = snapshot;
+        latRad[slot] = lat;
+        lonRad[slot] = Math.toRadians(snapshot.longitude());
+        cosLat[slot] = Math.cos(lat);
+    }
+}
@@ -0,0 +1,7 @@
+package com.rentacar.geo;
+
+/**
+ * A vehicle id together with its distance in km from the query point.
+ */
+public record Neighbor(long id, double distanceKm) {
+}
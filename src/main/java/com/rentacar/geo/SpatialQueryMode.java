@@ -0,0 +1,11 @@
+package com.rentacar.geo;
+
+/**
+ * Where radius and nearest-vehicle queries are evaluated ({@code rentacar.spatial.mode}).
+ */
+public enum SpatialQueryMode {
+    /** In the JVM, against {@link VehicleSpatialIndex}. */
+    MEMORY,
+    /** In PostgreSQL, with PostGIS functions on the GiST-indexed {@code vehicle.location} column. */
+    POSTGIS
+}
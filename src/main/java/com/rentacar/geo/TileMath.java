@@ -0,0 +1,66 @@
+package com.rentacar.geo;
+
+/**
+ * Web Mercator (slippy map) tile arithmetic, matching the tile scheme used by Leaflet and OSM.
+ */
+public final class TileMath {
+
+    // Web Mercator is undefined at the poles; tiles stop at this latitude
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    private TileMath() {
+    }
+
+    /**
+     * Tile column of the longitude at the zoom level, wrapped into [0, 2^zoom).
+     */
+    public static int tileX(double longitude, int zoom) {
+        return Math.floorMod(unwrappedTileX(longitude, zoom), 1 << zoom);
+    }
+
+    /**
+     * Tile column without wrapping, so longitudes past the antimeridian give columns outside [0, 2^zoom).
+     */
+    public static int unwrappedTileX(double longitude, int zoom) {
+        return (int) Math.floor((longitude + 180) / 360 * (1 << zoom));
+    }
+
+    /**
+     * Tile row of the latitude at the zoom level; row 0 is the northern edge.
+     */
+    public static int tileY(double latitude, int zoom) {
+        int tiles = 1 << zoom;
+        int y = (int) Math.floor(mercatorY(latitude) * tiles);
+        return Math.max(0, Math.min(tiles - 1, y));
+    }
+
+    /**
+     * Mercator x of the longitude, normalized to [0, 1) from west to east.
+     */
+    public static double mercatorX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /**
+     * Mercator y of the latitude, normalized to [0, 1] from north to south.
+     */
+    public static double mercatorY(double latitude) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+    }
+
+    /**
+     * Longitude of the western edge of the tile column; fractional columns address points inside it.
+     */
+    public static double tileLongitude(double x, int zoom) {
+        return x * 360.0 / (1 << zoom) - 180;
+    }
+
+    /**
+     * Latitude of the northern edge of the tile row; fractional rows address points inside it.
+     */
+    public static double tileLatitude(double y, int zoom) {
+        double n = Math.PI - 2 * Math.PI * y / (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+}
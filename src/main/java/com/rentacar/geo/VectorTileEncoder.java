@@ -0,0 +1,167 @@
+package com.rentacar.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal Mapbox Vector Tile (v2) writer for a single layer of point features. Only the parts of
+ * the protobuf schema needed for vehicle markers are written: feature ids, tags and MoveTo
+ * geometry, with string, integer, double and boolean attribute values.
+ */
+public final class VectorTileEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+
+    private static final int GEOMETRY_POINT = 1;
+    private static final int COMMAND_MOVE_TO = 1;
+
+    private final String layerName;
+    private final int zoom;
+    private final int x;
+    private final int y;
+    private final int extent;
+
+    private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+    private final Map<Object, Integer> valueIndex = new HashMap<>();
+    private int featureCount;
+
+    public VectorTileEncoder(String layerName, int zoom, int x, int y, int extent) {
+        this.layerName = layerName;
+        this.zoom = zoom;
+        this.x = x;
+        this.y = y;
+        this.extent = extent;
+    }
+
+    /**
+     * Adds a point feature. Coordinates are projected into the tile's pixel space, so points in the
+     * buffer around the tile end up slightly outside [0, extent), as the spec allows.
+     */
+    public void addPoint(long id, double latitude, double longitude, Map<String, ?> attributes) {
+        double tiles = 1 << zoom;
+        int px = (int) Math.round((TileMath.mercatorX(longitude) * tiles - x) * extent);
+        int py = (int) Math.round((TileMath.mercatorY(latitude) * tiles - y) * extent);
+
+        ByteArrayOutputStream tags = new ByteArrayOutputStream();
+        attributes.forEach((key, value) -> {
+            if (value == null) {
+                return;
+            }
+            Object normalized = normalize(value);
+            writeVarint(tags, keyIndex.computeIfAbsent(key, k -> {
+                keys.add(k);
+                return keys.size() - 1;
+            }));
+            writeVarint(tags, valueIndex.computeIfAbsent(normalized, v -> {
+                values.add(v);
+                return values.size() - 1;
+            }));
+        });
+
+        ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+        writeVarint(geometry, (COMMAND_MOVE_TO & 0x7) | (1 << 3));
+        writeVarint(geometry, Integer.toUnsignedLong(zigZag(px)));
+        writeVarint(geometry, Integer.toUnsignedLong(zigZag(py)));
+
+        ByteArrayOutputStream feature = new ByteArrayOutputStream();
+        writeTag(feature, 1, 0);
+        writeVarint(feature, id);
+        writeBytes(feature, 2, tags.toByteArray());
+        writeTag(feature, 3, 0);
+        writeVarint(feature, GEOMETRY_POINT);
+        writeBytes(feature, 4, geometry.toByteArray());
+
+        writeBytes(features, 2, feature.toByteArray());
+        featureCount++;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * Serialized tile. An empty layer is still written so clients can tell the layer exists.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream layer = new ByteArrayOutputStream();
+        writeTag(layer, 15, 0);
+        writeVarint(layer, 2);
+        writeBytes(layer, 1, layerName.getBytes(StandardCharsets.UTF_8));
+        layer.writeBytes(features.toByteArray());
+        for (String key : keys) {
+            writeBytes(layer, 3, key.getBytes(StandardCharsets.UTF_8));
+        }
+        for (Object value : values) {
+            writeBytes(layer, 4, encodeValue(value));
+        }
+        writeTag(layer, 5, 0);
+        writeVarint(layer, extent);
+
+        ByteArrayOutputStream tile = new ByteArrayOutputStream();
+        writeBytes(tile, 3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    // Integral numbers share one value entry regardless of their boxed type
+    private static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    private static byte[] encodeValue(Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (value instanceof String string) {
+            writeBytes(out, 1, string.getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Double number) {
+            writeTag(out, 3, 1);
+            long bits = Double.doubleToLongBits(number);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        } else if (value instanceof Long number) {
+            writeTag(out, 4, 0);
+            writeVarint(out, number);
+        } else if (value instanceof Boolean flag) {
+            writeTag(out, 7, 0);
+            writeVarint(out, flag ? 1 : 0);
+        }
+        return out.toByteArray();
+    }
+
+    private static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+        writeVarint(out, ((long) field << 3) | wireType);
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeTag(out, field, 2);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,16 @@
+package com.rentacar.geo;
+
+import com.rentacar.model.Vehicle;
+
+import java.util.Map;
+
+/**
+ * Pre-aggregated group of available vehicles shown as a single marker on the map.
+ *
+ * @param latitude  centroid latitude of the vehicles in the cluster
+ * @param longitude centroid longitude of the vehicles in the cluster
+ * @param count     number of vehicles in the cluster
+ * @param types     number of vehicles per type
+ */
+public record VehicleCluster(double latitude, double longitude, int count, Map<Vehicle.VehicleType, Integer> types) {
+}
@@ -0,0 +1,34 @@
+package com.rentacar.geo;
+
+import com.rentacar.model.Vehicle;
+
+/**
+ * Immutable copy of the vehicle fields kept in memory by {@link VehicleSpatialIndex}: the position
+ * plus the attributes searches filter on, so filters can run before anything is loaded from the
+ * database. {@code dailyRate} is NaN when the vehicle has no rate.
+ */
+public record VehicleSnapshot(long id, double latitude, double longitude,
+                              Vehicle.VehicleType type, boolean available,
+                              double dailyRate, int seats, String fuelType) {
+
+    /**
+     * Returns a snapshot of the vehicle, or {@code null} when it has no usable coordinates.
+     */
+    public static VehicleSnapshot of(Vehicle vehicle) {
+        if (vehicle.getId() == null || vehicle.getLatitude() == null || vehicle.getLongitude() == null) {
+            return null;
+        }
+        // 0,0 is what unset coordinates end up as, never a real vehicle position
+        if (vehicle.getLatitude() == 0 && vehicle.getLongitude() == 0) {
+            return null;
+        }
+        return new VehicleSnapshot(vehicle.getId(), vehicle.getLatitude(), vehicle.getLongitude(),
+                vehicle.getType(), vehicle.isAvailable(),
+                vehicle.getDailyRate() != null ? vehicle.getDailyRate().doubleValue() : Double.NaN,
+                vehicle.getSeats(), vehicle.getFuelType());
+    }
+
+    public VehicleSnapshot withPosition(double latitude, double longitude) {
+        return new VehicleSnapshot(id, latitude, longitude, type, available, dailyRate, seats, fuelType);
+    }
+}
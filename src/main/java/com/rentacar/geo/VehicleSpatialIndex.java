@@ -0,0 +1,591 @@
+package com.rentacar.geo;
+
+import com.rentacar.model.Vehicle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory uniform lat/lon grid of vehicle positions.
+ * <p>
+ * Every positioned vehicle lives in exactly one cell, so a radius query only has to look at the
+ * cells overlapping the bounding box of the search circle instead of the whole fleet. The index is
+ * filled lazily from the database on first use and then kept current by {@code VehicleService};
+ * changes that arrive while the fleet is being read are replayed onto the loaded contents.
+ * <p>
+ * Next to the grid it keeps a hierarchy of map cluster cells for available vehicles: one level per
+ * map zoom, where each map tile is split into 4x4 cells and every cell has exactly four children on
+ * the next level. Counts, centroids and type breakdowns are updated incrementally, so a cluster
+ * query only reads the pre-aggregated cells inside the viewport.
+ */
+@Component
+public class VehicleSpatialIndex {
+
+    // Deepest map zoom with pre-aggregated clusters
+    public static final int MAX_CLUSTER_ZOOM = 16;
+
+    // Each map tile is split into 2^2 x 2^2 cluster cells (64 px on 256 px tiles)
+    private static final int CLUSTER_SUBDIVISION = 2;
+
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+
+    private final Map<Long, VehicleSnapshot> snapshots = new HashMap<>();
+    private final Map<Long, GridCell> cells = new HashMap<>();
+    private final List<Map<Long, ClusterAggregate>> clusterLevels = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    // Changes that arrive while a load is reading the fleet, replayed onto the loaded contents
+    private final Queue<Runnable> changesDuringLoad = new ConcurrentLinkedQueue<>();
+    private volatile boolean loading;
+
+    public VehicleSpatialIndex(@Value("${rentacar.spatial.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 90) {
+            throw new IllegalArgumentException("Cell size must be in (0, 90] degrees: " + cellSizeDegrees);
+        }
+        this.cellSize = cellSizeDegrees;
+        this.rows = (int) Math.ceil(180 / cellSizeDegrees);
+        this.columns = (int) Math.ceil(360 / cellSizeDegrees);
+        for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+            clusterLevels.add(new HashMap<>());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Fills the index from the given loader unless it has already been loaded.
+     */
+    public void loadIfNeeded(Supplier<? extends Collection<Vehicle>> loader) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                rebuild(loader);
+            }
+        }
+    }
+
+    public void rebuild(Collection<Vehicle> vehicles) {
+        rebuild(() -> vehicles);
+    }
+
+    /**
+     * Replaces the contents with the loaded vehicles. Changes made while the loader runs may be
+     * missing from what it returns, so they are applied again on top of it.
+     */
+    public synchronized void rebuild(Supplier<? extends Collection<Vehicle>> loader) {
+        loading = true;
+        try {
+            Collection<Vehicle> vehicles = loader.get();
+            lock.writeLock().lock();
+            try {
+                snapshots.clear();
+                cells.clear();
+                clusterLevels.forEach(Map::clear);
+                for (Vehicle vehicle : vehicles) {
+                    VehicleSnapshot snapshot = VehicleSnapshot.of(vehicle);
+                    if (snapshot != null) {
+                        insert(snapshot);
+                    }
+                }
+                Runnable change;
+                while ((change = changesDuringLoad.poll()) != null) {
+                    change.run();
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loading = false;
+            changesDuringLoad.clear();
+        }
+    }
+
+    /**
+     * Adds the vehicle or moves it to its current position. Vehicles without coordinates are dropped.
+     */
+    public void put(Vehicle vehicle) {
+        if (vehicle.getId() == null) {
+            return;
+        }
+        long vehicleId = vehicle.getId();
+        VehicleSnapshot snapshot = VehicleSnapshot.of(vehicle);
+        change(() -> {
+            delete(vehicleId);
+            if (snapshot != null) {
+                insert(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Adds or moves a vehicle from a snapshot, e.g. one derived from {@link #get}.
+     */
+    public void put(VehicleSnapshot snapshot) {
+        change(() -> {
+            delete(snapshot.id());
+            insert(snapshot);
+        });
+    }
+
+    /**
+     * The indexed snapshot of the vehicle, or {@code null} when it is not in the index.
+     */
+    public VehicleSnapshot get(long vehicleId) {
+        lock.readLock().lock();
+        try {
+            return snapshots.get(vehicleId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long vehicleId) {
+        change(() -> delete(vehicleId));
+    }
+
+    // Changes must be idempotent, so replaying one the loader has already seen is harmless
+    private void change(Runnable change) {
+        if (loading) {
+            changesDuringLoad.add(change);
+        }
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return snapshots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all indexed vehicles within {@code radiusKm} of the given point.
+     */
+    public List<Long> findWithinRadius(double latitude, double longitude, double radiusKm) {
+        return findWithinRadius(latitude, longitude, radiusKm, snapshot -> true).stream()
+                .map(Neighbor::id)
+                .toList();
+    }
+
+    /**
+     * Indexed vehicles accepted by {@code filter} within {@code radiusKm} of the given point.
+     */
+    public List<Neighbor> findWithinRadius(double latitude, double longitude, double radiusKm,
+                                           Predicate<VehicleSnapshot> filter) {
+        List<Neighbor> result = new ArrayList<>();
+        if (radiusKm < 0) {
+            return result;
+        }
+
+        double latSpan = radiusKm / GeoUtils.KM_PER_DEGREE;
+        double minLat = Math.max(-90, latitude - latSpan);
+        double maxLat = Math.min(90, latitude + latSpan);
+
+        // Meridians converge, so the longitude span has to cover the widest latitude of the box
+        double maxAbsLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double lonSpan = maxAbsLat >= 89.99 ? 360 : latSpan / Math.cos(Math.toRadians(maxAbsLat));
+
+        int minRow = row(minLat);
+        int maxRow = row(maxLat);
+        int minCol = (int) Math.floor((longitude - lonSpan + 180) / cellSize);
+        int maxCol = (int) Math.floor((longitude + lonSpan + 180) / cellSize);
+        if (maxCol - minCol + 1 >= columns) {
+            minCol = 0;
+            maxCol = columns - 1;
+        }
+
+        DistanceKernel kernel = new DistanceKernel(latitude, longitude);
+        Scratch scratch = new Scratch();
+        lock.readLock().lock();
+        try {
+            for (int r = minRow; r <= maxRow; r++) {
+                for (int c = minCol; c <= maxCol; c++) {
+                    GridCell cell = cells.get(cellKey(r, Math.floorMod(c, columns)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    // Cheap flat-earth pass first, exact distances only for what survives it
+                    scratch.ensureCapacity(cell.size);
+                    int count = kernel.selectCandidates(cell.latRad, cell.lonRad, cell.cosLat, cell.size,
+                            radiusKm, scratch.candidates);
+                    kernel.distancesKm(cell.latRad, cell.lonRad, cell.cosLat, scratch.candidates, count,
+                            scratch.distances);
+                    for (int k = 0; k < count; k++) {
+                        VehicleSnapshot snapshot = cell.vehicles[scratch.candidates[k]];
+                        if (scratch.distances[k] <= radiusKm && filter.test(snapshot)) {
+                            result.add(new Neighbor(snapshot.id(), scratch.distances[k]));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * The {@code limit} indexed vehicles accepted by {@code filter} that are closest to the given
+     * point, nearest first.
+     * <p>
+     * Cells are visited in rings of growing size around the point while a bounded max-heap keeps the
+     * best {@code limit} candidates. The search stops as soon as nothing outside the rings visited so
+     * far can beat the current worst candidate, so each distance is computed once and only for
+     * vehicles near the point.
+     */
+    public List<Neighbor> findNearest(double latitude, double longitude, int limit,
+                                      Predicate<VehicleSnapshot> filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Neighbor> heap = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(Neighbor::distanceKm).reversed());
+        DistanceKernel kernel = new DistanceKernel(latitude, longitude);
+        Scratch scratch = new Scratch();
+
+        int originRow = row(latitude);
+        int originCol = column(longitude);
+
+        lock.readLock().lock();
+        try {
+            int seen = 0;
+            int cellsVisited = 0;
+            for (int ring = 0; seen < snapshots.size(); ring++) {
+                if (heap.size() == limit
+                        && distanceOutsideRings(latitude, longitude, originRow, originCol, ring - 1)
+                           > heap.peek().distanceKm()) {
+                    break;
+                }
+                // Rings wrapping around the globe, or sparse fleets spread far apart: visiting cells
+                // would cost more than simply checking every vehicle once
+                if (2 * ring + 1 >= columns || cellsVisited > snapshots.size()) {
+                    heap.clear();
+                    for (GridCell cell : cells.values()) {
+                        offerAll(heap, limit, cell, kernel, scratch, filter);
+                    }
+                    break;
+                }
+
+                for (int r = originRow - ring; r <= originRow + ring; r++) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    // Inner rows of the ring only contribute their two edge cells
+                    int step = (r == originRow - ring || r == originRow + ring) ? 1 : Math.max(1, 2 * ring);
+                    for (int c = originCol - ring; c <= originCol + ring; c += step) {
+                        cellsVisited++;
+                        GridCell cell = cells.get(cellKey(r, Math.floorMod(c, columns)));
+                        if (cell == null) {
+                            continue;
+                        }
+                        seen += cell.size;
+                        offerAll(heap, limit, cell, kernel, scratch, filter);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Neighbor> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    private static void offerAll(PriorityQueue<Neighbor> heap, int limit, GridCell cell, DistanceKernel kernel,
+                                 Scratch scratch, Predicate<VehicleSnapshot> filter) {
+        scratch.ensureCapacity(cell.size);
+        kernel.distancesKm(cell.latRad, cell.lonRad, cell.cosLat, cell.size, scratch.distances);
+        for (int i = 0; i < cell.size; i++) {
+            double distance = scratch.distances[i];
+            if (heap.size() == limit && distance >= heap.peek().distanceKm()) {
+                continue;
+            }
+            VehicleSnapshot snapshot = cell.vehicles[i];
+            if (!filter.test(snapshot)) {
+                continue;
+            }
+            if (heap.size() == limit) {
+                heap.poll();
+            }
+            heap.add(new Neighbor(snapshot.id(), distance));
+        }
+    }
+
+    // Lower bound (km) for the distance from the point to any cell outside rings 0..ring
+    private double distanceOutsideRings(double latitude, double longitude, int originRow, int originCol, int ring) {
+        if (ring < 0) {
+            return 0;
+        }
+        double north = (originRow + ring + 1) * cellSize - 90 - latitude;
+        double south = latitude - ((originRow - ring) * cellSize - 90);
+        double east = (originCol + ring + 1) * cellSize - 180 - longitude;
+        double west = longitude - ((originCol - ring) * cellSize - 180);
+
+        double bound = Double.MAX_VALUE;
+        if (originRow + ring + 1 < rows) {
+            bound = Math.min(bound, north * GeoUtils.KM_PER_DEGREE);
+        }
+        if (originRow - ring > 0) {
+            bound = Math.min(bound, south * GeoUtils.KM_PER_DEGREE);
+        }
+        // Distance to a meridian dLon away is R * asin(cos(lat) * sin(dLon))
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double lonGap = Math.toRadians(Math.min(90, Math.min(east, west)));
+        bound = Math.min(bound, GeoUtils.EARTH_RADIUS_KM * Math.asin(cosLat * Math.sin(lonGap)));
+        return bound;
+    }
+
+    /**
+     * Indexed vehicles accepted by {@code filter} inside the bounding box. The box may cross the
+     * antimeridian, in which case {@code west} is greater than {@code east} or outside [-180, 180].
+     */
+    public List<VehicleSnapshot> findInBoundingBox(double south, double west, double north, double east,
+                                                   Predicate<VehicleSnapshot> filter) {
+        List<VehicleSnapshot> result = new ArrayList<>();
+        if (east < west) {
+            east += 360;
+        }
+        boolean wholeWorld = east - west >= 360;
+
+        int minRow = row(Math.max(-90, south));
+        int maxRow = row(Math.min(90, north));
+        int minCol = wholeWorld ? 0 : (int) Math.floor((west + 180) / cellSize);
+        int maxCol = wholeWorld ? columns - 1 : (int) Math.floor((east + 180) / cellSize);
+
+        lock.readLock().lock();
+        try {
+            long cellCount = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+            if (cellCount > cells.size()) {
+                // Box spans more cells than are occupied: cheaper to test every vehicle directly
+                for (VehicleSnapshot snapshot : snapshots.values()) {
+                    if (filter.test(snapshot) && contains(south, west, north, east, wholeWorld, snapshot)) {
+                        result.add(snapshot);
+                    }
+                }
+                return result;
+            }
+            for (int r = minRow; r <= maxRow; r++) {
+                for (int c = minCol; c <= maxCol; c++) {
+                    GridCell cell = cells.get(cellKey(r, Math.floorMod(c, columns)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        VehicleSnapshot snapshot = cell.vehicles[i];
+                        if (filter.test(snapshot) && contains(south, west, north, east, wholeWorld, snapshot)) {
+                            result.add(snapshot);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private static boolean contains(double south, double west, double north, double east, boolean wholeWorld,
+                                    VehicleSnapshot snapshot) {
+        if (snapshot.latitude() < south || snapshot.latitude() > north) {
+            return false;
+        }
+        if (wholeWorld) {
+            return true;
+        }
+        // Shift the longitude into the box's (possibly unwrapped) range before comparing
+        double lon = west + ((snapshot.longitude() - west) % 360 + 360) % 360;
+        return lon <= east;
+    }
+
+    /**
+     * Pre-aggregated clusters of available vehicles inside the bounding box at the given map zoom.
+     */
+    public List<VehicleCluster> findClusters(double south, double west, double north, double east, int zoom) {
+        int level = Math.max(0, Math.min(MAX_CLUSTER_ZOOM, zoom));
+        int z = level + CLUSTER_SUBDIVISION;
+        int tiles = 1 << z;
+
+        if (east < west) {
+            east += 360;
+        }
+        int minX;
+        int maxX;
+        if (east - west >= 360) {
+            minX = 0;
+            maxX = tiles - 1;
+        } else {
+            minX = TileMath.unwrappedTileX(west, z);
+            maxX = TileMath.unwrappedTileX(east, z);
+        }
+        int minY = TileMath.tileY(north, z);
+        int maxY = TileMath.tileY(south, z);
+
+        List<VehicleCluster> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, ClusterAggregate> cellsOnLevel = clusterLevels.get(level);
+            long cellCount = (long) (maxX - minX + 1) * (maxY - minY + 1);
+            if (cellCount > cellsOnLevel.size()) {
+                // Viewport larger than the populated area: walk the populated cells instead
+                int fromX = Math.floorMod(minX, tiles);
+                for (Map.Entry<Long, ClusterAggregate> entry : cellsOnLevel.entrySet()) {
+                    int x = (int) (entry.getKey() >>> 32);
+                    int y = (int) (long) entry.getKey();
+                    boolean insideX = maxX - minX + 1 >= tiles || Math.floorMod(x - fromX, tiles) <= maxX - minX;
+                    if (insideX && y >= minY && y <= maxY) {
+                        result.add(entry.getValue().toCluster());
+                    }
+                }
+                return result;
+            }
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    ClusterAggregate aggregate = cellsOnLevel.get(clusterKey(Math.floorMod(x, tiles), y));
+                    if (aggregate != null) {
+                        result.add(aggregate.toCluster());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Callers must hold the write lock
+    private void updateClusters(VehicleSnapshot snapshot, int delta) {
+        int finest = MAX_CLUSTER_ZOOM + CLUSTER_SUBDIVISION;
+        int x = TileMath.tileX(snapshot.longitude(), finest);
+        int y = TileMath.tileY(snapshot.latitude(), finest);
+        for (int level = MAX_CLUSTER_ZOOM; level >= 0; level--) {
+            int shift = MAX_CLUSTER_ZOOM - level;
+            long key = clusterKey(x >> shift, y >> shift);
+            Map<Long, ClusterAggregate> cellsOnLevel = clusterLevels.get(level);
+            ClusterAggregate aggregate = cellsOnLevel.computeIfAbsent(key, k -> new ClusterAggregate());
+            aggregate.add(snapshot, delta);
+            if (aggregate.count == 0) {
+                cellsOnLevel.remove(key);
+            }
+        }
+    }
+
+    private static long clusterKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    // Callers must hold the write lock
+    private void insert(VehicleSnapshot snapshot) {
+        snapshots.put(snapshot.id(), snapshot);
+        cells.computeIfAbsent(cellKey(snapshot.latitude(), snapshot.longitude()), k -> new GridCell())
+                .add(snapshot);
+        if (snapshot.available()) {
+            updateClusters(snapshot, 1);
+        }
+    }
+
+    // Callers must hold the write lock
+    private void delete(Long vehicleId) {
+        VehicleSnapshot previous = snapshots.remove(vehicleId);
+        if (previous == null) {
+            return;
+        }
+        if (previous.available()) {
+            updateClusters(previous, -1);
+        }
+        long key = cellKey(previous.latitude(), previous.longitude());
+        GridCell cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(vehicleId);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellSize));
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return cellKey(row(latitude), column(longitude));
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    // Per-query buffers for the distance kernel, grown to the largest cell visited
+    private static final class Scratch {
+        private int[] candidates = new int[16];
+        private double[] distances = new double[16];
+
+        void ensureCapacity(int size) {
+            if (size > distances.length) {
+                int capacity = Math.max(size, distances.length * 2);
+                candidates = new int[capacity];
+                distances = new double[capacity];
+            }
+        }
+    }
+
+    // Running totals of one cluster cell
+    private static final class ClusterAggregate {
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private final int[] typeCounts = new int[Vehicle.VehicleType.values().length];
+
+        void add(VehicleSnapshot snapshot, int delta) {
+            count += delta;
+            latitudeSum += delta * snapshot.latitude();
+            longitudeSum += delta * snapshot.longitude();
+            if (snapshot.type() != null) {
+                typeCounts[snapshot.type().ordinal()] += delta;
+            }
+        }
+
+        VehicleCluster toCluster() {
+            Map<Vehicle.VehicleType, Integer> types = new EnumMap<>(Vehicle.VehicleType.class);
+            for (Vehicle.VehicleType type : Vehicle.VehicleType.values()) {
+                if (typeCounts[type.ordinal()] > 0) {
+                    types.put(type, typeCounts[type.ordinal()]);
+                }
+            }
+            return new VehicleCluster(latitudeSum / count, longitudeSum / count, count, types);
+        }
+    }
+}
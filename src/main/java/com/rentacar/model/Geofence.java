@@ -0,0 +1,25 @@
+package com.rentacar.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.locationtech.jts.geom.Polygon;
+
+@Entity
+@Table(name = "geofence")
+@Data
+public class Geofence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    // WGS84 polygon, longitude as x
+    @Column(nullable = false, columnDefinition = "geometry(Polygon,4326)")
+    private Polygon area;
+
+    @Column(nullable = false)
+    private boolean active = true;
+}
@@ -2,25 +2,31 @@ package com.rentacar.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "reservation")
+@NamedEntityGraph(name = "Reservation.details",
+        attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode("vehicle")})
 @Data
 public class Reservation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_id", nullable = false)
+    @ToString.Exclude
     private Vehicle vehicle;
 
     @Column(name = "start_date", nullable = false)
@@ -32,10 +38,19 @@ public class Reservation {
     @Column(name = "total_cost", nullable = false)
     private BigDecimal totalCost;
 
+    // Vehicle type the reservation is counted under in revenue_daily, fixed when it is booked
+    @Enumerated(EnumType.STRING)
+    @Column(name = "revenue_vehicle_type")
+    private Vehicle.VehicleType revenueVehicleType;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ReservationStatus status;
 
+    // Until this instant a PENDING reservation holds the vehicle for payment; null once confirmed
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
     @Column(name = "stripe_payment_id")
     private String stripePaymentId;
 
@@ -0,0 +1,25 @@
+package com.rentacar.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Number and total cost of the reservations of one vehicle type and status that start on one day.
+ * Maintained by {@link com.rentacar.service.RevenueRollupService}.
+ */
+@Entity
+@Table(name = "revenue_daily")
+@Data
+public class RevenueDaily {
+
+    @EmbeddedId
+    private RevenueDailyId id;
+
+    @Column(nullable = false)
+    private long reservations;
+
+    @Column(nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,27 @@
+package com.rentacar.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueDailyId implements Serializable {
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "vehicle_type", nullable = false)
+    private Vehicle.VehicleType vehicleType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Reservation.ReservationStatus status;
+}
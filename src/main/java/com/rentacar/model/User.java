@@ -2,6 +2,8 @@ package com.rentacar.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,10 +14,14 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = "User.reservations",
+        attributeNodes = @NamedAttributeNode(value = "reservations", subgraph = "reservation"),
+        subgraphs = @NamedSubgraph(name = "reservation", attributeNodes = @NamedAttributeNode("vehicle")))
 @Data
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     
     private String firstName;
@@ -33,8 +39,11 @@ public class User implements UserDetails {
     @Embedded
     private Address address;
     
-    // Change fetch type from LAZY to EAGER
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Loaded only through the User.reservations entity graph or on access; kept out of
+    // equals/hashCode/toString so the security principal never triggers the load
+    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Reservation> reservations;
     
     public enum Role {
@@ -5,6 +5,7 @@ import lombok.Data;
 import org.locationtech.jts.geom.Point;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,7 +15,8 @@ import java.util.List;
 public class Vehicle {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_seq")
+    @SequenceGenerator(name = "vehicle_seq", sequenceName = "vehicle_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -57,6 +59,10 @@ public class Vehicle {
     private Double latitude;
     private Double longitude;
 
+    // Time of the newest position written, only set by VehicleLocationRepository
+    @Column(name = "last_ping_at", insertable = false, updatable = false)
+    private Instant lastPingAt;
+
     // Rating information
     private Double rating;
     
@@ -0,0 +1,28 @@
+package com.rentacar.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits for the SQL of one request: total statements, and how often the same statement text may
+ * run (more is most likely an N+1 loop over lazy associations).
+ */
+public record SqlBudget(int maxStatements, int maxRepeated) {
+
+    /**
+     * Human-readable reasons the stats exceed this budget; empty when they are within it.
+     */
+    public List<String> violations(SqlRequestStats stats) {
+        List<String> violations = new ArrayList<>();
+        if (stats.getStatements() > maxStatements) {
+            violations.add(stats.getStatements() + " statements, budget " + maxStatements);
+        }
+        Map.Entry<String, Integer> repeated = stats.getMostRepeatedStatement();
+        if (repeated != null && repeated.getValue() > maxRepeated) {
+            violations.add("same statement ran " + repeated.getValue() + " times, budget " + maxRepeated
+                    + ": " + repeated.getKey());
+        }
+        return violations;
+    }
+}
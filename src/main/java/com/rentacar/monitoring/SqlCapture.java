@@ -0,0 +1,60 @@
+package com.rentacar.monitoring;
+
+import java.util.List;
+
+/**
+ * Assertion API for tests: counts the SQL of a block of code and fails with an
+ * {@link AssertionError} when it exceeds a limit, so a new N+1 breaks the build.
+ * <pre>
+ * try (SqlCapture sql = SqlCapture.start()) {
+ *     userService.findByUsernameWithReservations("jan@example.com");
+ *     sql.assertStatementsAtMost(1);
+ * }
+ * </pre>
+ * Needs the Hibernate hooks installed, see {@code SqlMonitoringConfig}.
+ */
+public final class SqlCapture implements AutoCloseable {
+
+    private final SqlRequestStats stats;
+    private boolean closed;
+
+    private SqlCapture(SqlRequestStats stats) {
+        this.stats = stats;
+    }
+
+    public static SqlCapture start() {
+        return new SqlCapture(SqlStatementMonitor.begin());
+    }
+
+    public SqlRequestStats stats() {
+        return stats;
+    }
+
+    public SqlCapture assertStatementsAtMost(int max) {
+        if (stats.getStatements() > max) {
+            throw new AssertionError("Expected at most " + max + " SQL statements but " + stats.getStatements()
+                    + " ran; most repeated: " + stats.getMostRepeatedStatement());
+        }
+        return this;
+    }
+
+    public SqlCapture assertNoStatementRepeatedMoreThan(int max) {
+        return assertWithin(new SqlBudget(Integer.MAX_VALUE, max));
+    }
+
+    public SqlCapture assertWithin(SqlBudget budget) {
+        List<String> violations = budget.violations(stats);
+        if (!violations.isEmpty()) {
+            throw new AssertionError("SQL budget exceeded: " + String.join("; ", violations));
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            SqlStatementMonitor.end(stats);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rentacar.monitoring;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Hibernate's global statistics, additionally attributing query rows and entity/collection loads
+ * to the current {@link SqlStatementMonitor} scope. Installed through hibernate.stats.factory.
+ * <p>
+ * Extends {@link StatisticsImpl}, which is internal to Hibernate, rather than delegating the whole
+ * {@code StatisticsImplementor} SPI. Only the SPI callbacks below are overridden, but a Hibernate
+ * upgrade has to check that the constructor and these methods still exist; the monitor can be
+ * turned off with {@code rentacar.sql.monitor.enabled=false} meanwhile.
+ */
+public class SqlCountingStatistics extends StatisticsImpl {
+
+    public SqlCountingStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        SqlRequestStats stats = SqlStatementMonitor.current();
+        if (stats != null) {
+            stats.queryRows(rows);
+        }
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        SqlRequestStats stats = SqlStatementMonitor.current();
+        if (stats != null) {
+            stats.entityLoaded();
+        }
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        SqlRequestStats stats = SqlStatementMonitor.current();
+        if (stats != null) {
+            stats.entityFetched();
+        }
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        SqlRequestStats stats = SqlStatementMonitor.current();
+        if (stats != null) {
+            stats.collectionFetched();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.rentacar.monitoring;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A request that went over the SQL budget. {@code path} is the matched handler pattern when known.
+ */
+public record SqlOffender(Instant at, String method, String path, int statements, long rows,
+                          long entityFetches, long collectionFetches, long executionMillis,
+                          List<String> violations) {
+}
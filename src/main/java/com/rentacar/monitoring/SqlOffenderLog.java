@@ -0,0 +1,45 @@
+package com.rentacar.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The most recent requests that exceeded the SQL budget, newest first.
+ */
+@Component
+public class SqlOffenderLog {
+
+    private final int capacity;
+    // Guarded by itself
+    private final Deque<SqlOffender> offenders = new ArrayDeque<>();
+
+    public SqlOffenderLog(@Value("${rentacar.sql.offenders.size:100}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public void record(SqlOffender offender) {
+        synchronized (offenders) {
+            offenders.addFirst(offender);
+            while (offenders.size() > capacity) {
+                offenders.removeLast();
+            }
+        }
+    }
+
+    public List<SqlOffender> recent() {
+        synchronized (offenders) {
+            return new ArrayList<>(offenders);
+        }
+    }
+
+    public void clear() {
+        synchronized (offenders) {
+            offenders.clear();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.rentacar.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL work done by one thread between {@link SqlStatementMonitor#begin()} and
+ * {@link SqlStatementMonitor#end}, usually one HTTP request. Not thread-safe; only the owning
+ * thread records into it.
+ */
+public class SqlRequestStats {
+
+    final SqlRequestStats parent;
+
+    private int statements;
+    private long rows;
+    private long executionNanos;
+    private long entityLoads;
+    private long entityFetches;
+    private long collectionFetches;
+    // Prepared SQL text to the number of times it ran; a high count for one text is the N+1 signature
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+
+    SqlRequestStats(SqlRequestStats parent) {
+        this.parent = parent;
+    }
+
+    void statementPrepared(String sql) {
+        statements++;
+        statementCounts.merge(sql, 1, Integer::sum);
+    }
+
+    void executed(long nanos) {
+        executionNanos += nanos;
+    }
+
+    void queryRows(int count) {
+        rows += count;
+    }
+
+    void entityLoaded() {
+        entityLoads++;
+    }
+
+    void entityFetched() {
+        entityFetches++;
+    }
+
+    void collectionFetched() {
+        collectionFetches++;
+    }
+
+    void addAll(SqlRequestStats other) {
+        statements += other.statements;
+        rows += other.rows;
+        executionNanos += other.executionNanos;
+        entityLoads += other.entityLoads;
+        entityFetches += other.entityFetches;
+        collectionFetches += other.collectionFetches;
+        other.statementCounts.forEach((sql, count) -> statementCounts.merge(sql, count, Integer::sum));
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * Result rows of HQL and native queries; entities loaded by id or lazily are in the load counts.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public long getExecutionMillis() {
+        return executionNanos / 1_000_000;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    /**
+     * Entities loaded by a separate select, e.g. an initialized lazy {@code @ManyToOne}.
+     */
+    public long getEntityFetches() {
+        return entityFetches;
+    }
+
+    /**
+     * Collections loaded by a separate select, e.g. an initialized lazy {@code @OneToMany}.
+     */
+    public long getCollectionFetches() {
+        return collectionFetches;
+    }
+
+    /**
+     * The statement text that ran most often, or null when nothing ran.
+     */
+    public Map.Entry<String, Integer> getMostRepeatedStatement() {
+        return statementCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .orElse(null);
+    }
+}
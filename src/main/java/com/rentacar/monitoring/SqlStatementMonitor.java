@@ -0,0 +1,53 @@
+package com.rentacar.monitoring;
+
+/**
+ * Thread-bound scope that the Hibernate hooks ({@link SqlCountingInspector},
+ * {@link SqlTimingListener}, {@link SqlCountingStatistics}) record into. Statements run outside
+ * a scope, e.g. by scheduled jobs, are not counted. Scopes nest; an inner scope's counts are added
+ * to the outer one when it ends.
+ */
+public final class SqlStatementMonitor {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementMonitor() {
+    }
+
+    public static SqlRequestStats begin() {
+        SqlRequestStats stats = new SqlRequestStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void end(SqlRequestStats stats) {
+        if (CURRENT.get() != stats) {
+            throw new IllegalStateException("SQL monitoring scopes must end in the order they began");
+        }
+        if (stats.parent != null) {
+            stats.parent.addAll(stats);
+            CURRENT.set(stats.parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Ends the scope like {@link #end} but never throws, for finally blocks on pooled threads: inner
+     * scopes left open are discarded and the thread is handed back bound to the scope's parent, or
+     * to nothing. Returns whether the scope was the current one.
+     */
+    public static boolean restore(SqlRequestStats stats) {
+        boolean current = CURRENT.get() == stats;
+        if (stats.parent != null) {
+            stats.parent.addAll(stats);
+            CURRENT.set(stats.parent);
+        } else {
+            CURRENT.remove();
+        }
+        return current;
+    }
+
+    static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.rentacar.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Measures JDBC execution time of single statements and batches. Hibernate creates one instance per
+ * session (hibernate.session.events.auto).
+ */
+public class SqlTimingListener extends BaseSessionEventListener {
+
+    private long started;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record();
+    }
+
+    private void record() {
+        SqlRequestStats stats = SqlStatementMonitor.current();
+        if (stats != null) {
+            stats.executed(System.nanoTime() - started);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.rentacar.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time a vehicle is blocked by a reservation, without loading the reservation entity.
+ */
+public interface BookedInterval {
+
+    Long getReservationId();
+
+    Long getVehicleId();
+
+    LocalDateTime getStartDate();
+
+    LocalDateTime getEndDate();
+}
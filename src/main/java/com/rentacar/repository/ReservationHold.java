@@ -0,0 +1,13 @@
+package com.rentacar.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment hold of a PENDING reservation, without loading the reservation entity.
+ */
+public interface ReservationHold {
+
+    Long getId();
+
+    LocalDateTime getHoldExpiresAt();
+}
@@ -1,24 +1,90 @@
 package com.rentacar.repository;
 
+import com.rentacar.dto.ReservationListItem;
 import com.rentacar.model.Reservation;
 import com.rentacar.model.Reservation.ReservationStatus;
 import com.rentacar.model.User;
 import com.rentacar.model.Vehicle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    // Constructor arguments of ReservationListItem, over Reservation r JOIN r.vehicle v JOIN r.user u
+    String LIST_ITEM_COLUMNS = "r.id, r.startDate, r.endDate, r.totalCost, r.status, r.stripePaymentId, r.rating, " +
+            "v.id, v.brand, v.model, v.licensePlate, v.type, v.year, v.imageUrl, u.email, u.firstName, u.lastName";
     
+    @EntityGraph(attributePaths = "vehicle")
     List<Reservation> findByUser(User user);
     
+    @EntityGraph(attributePaths = "user")
     List<Reservation> findAllByVehicle(Vehicle vehicle);
+
+    // For pages showing the customer and the vehicle; plain findById leaves both lazy
+    @EntityGraph("Reservation.details")
+    Optional<Reservation> findDetailsById(Long id);
+
+    // Serializes status changes that race, such as an expiring hold and an arriving payment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id = :id")
+    Optional<Reservation> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT r.id AS id, r.holdExpiresAt AS holdExpiresAt FROM Reservation r " +
+           "WHERE r.status = :status AND r.holdExpiresAt IS NOT NULL")
+    List<ReservationHold> findHolds(@Param("status") ReservationStatus status);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.holdExpiresAt = :expiresAt " +
+           "WHERE r.status = :status AND r.holdExpiresAt IS NULL")
+    int holdUnheld(@Param("status") ReservationStatus status, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("SELECT r.status AS status, COUNT(r) AS count FROM Reservation r GROUP BY r.status")
+    List<StatusCount> countByStatus();
+
+    @Query("SELECT r.user.id AS userId, COUNT(r) AS reservations, " +
+           "SUM(CASE WHEN r.status = :active THEN 1 ELSE 0 END) AS active " +
+           "FROM Reservation r WHERE r.user.id IN :userIds GROUP BY r.user.id")
+    List<UserReservationCount> countByUserIds(@Param("userIds") Collection<Long> userIds,
+                                              @Param("active") ReservationStatus active);
+
+    // Newest first keyset page on the primary key; the Pageable only carries the limit
+    @EntityGraph("Reservation.details")
+    List<Reservation> findByIdLessThanOrderByIdDesc(Long id, Pageable limit);
     
+    @Query("SELECT new com.rentacar.dto.ReservationListItem(" + LIST_ITEM_COLUMNS + ") " +
+           "FROM Reservation r JOIN r.vehicle v JOIN r.user u WHERE r.id < :id ORDER BY r.id DESC")
+    List<ReservationListItem> findListItemsByIdLessThan(@Param("id") Long id, Pageable limit);
+
+    @Query("SELECT new com.rentacar.dto.ReservationListItem(" + LIST_ITEM_COLUMNS + ") " +
+           "FROM Reservation r JOIN r.vehicle v JOIN r.user u WHERE u.id = :userId ORDER BY r.id DESC")
+    List<ReservationListItem> findListItemsByUserId(@Param("userId") Long userId);
+
+    // Revenue report drill-down, reservations starting in [from, to] by the type they are reported
+    // under; a null type means every type
+    @Query("SELECT new com.rentacar.dto.ReservationListItem(" + LIST_ITEM_COLUMNS + ") " +
+           "FROM Reservation r JOIN r.vehicle v JOIN r.user u WHERE r.status IN :statuses " +
+           "AND r.startDate >= :from AND r.startDate <= :to AND (:type IS NULL OR r.revenueVehicleType = :type) " +
+           "ORDER BY r.startDate, r.id")
+    List<ReservationListItem> findListItemsStartingIn(
+            @Param("statuses") Collection<ReservationStatus> statuses,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("type") Vehicle.VehicleType type);
+
     @Query("SELECT r FROM Reservation r WHERE " +
            "r.vehicle = :vehicle AND " +
            "r.status <> :canceledStatus AND " +
@@ -28,4 +94,42 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             @Param("canceledStatus") ReservationStatus canceledStatus);
-}
\ No newline at end of file
+
+    // Reservations blocking any part of [from, to), for the availability calendar
+    @Query("SELECT r.id AS reservationId, r.vehicle.id AS vehicleId, r.startDate AS startDate, r.endDate AS endDate " +
+           "FROM Reservation r WHERE r.status <> :excludeStatus AND r.endDate >= :from AND r.startDate < :to")
+    List<BookedInterval> findBookedIntervals(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("excludeStatus") ReservationStatus excludeStatus);
+
+    @Query("SELECT r.id AS reservationId, r.vehicle.id AS vehicleId, r.startDate AS startDate, r.endDate AS endDate " +
+           "FROM Reservation r WHERE r.vehicle.id = :vehicleId AND r.status <> :excludeStatus " +
+           "AND r.endDate >= :from AND r.startDate < :to")
+    List<BookedInterval> findBookedIntervals(
+            @Param("vehicleId") Long vehicleId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("excludeStatus") ReservationStatus excludeStatus);
+
+    // Reservations still blocking their vehicle at or after :from, for the conflict index
+    @Query("SELECT r.id AS reservationId, r.vehicle.id AS vehicleId, r.startDate AS startDate, r.endDate AS endDate " +
+           "FROM Reservation r WHERE r.status <> :excludeStatus AND r.endDate >= :from")
+    List<BookedInterval> findBookedIntervalsEndingAfter(
+            @Param("from") LocalDateTime from,
+            @Param("excludeStatus") ReservationStatus excludeStatus);
+
+    // Every reservation of the user, whatever its status, before they are deleted with it
+    @Query("SELECT r.id AS reservationId, r.vehicle.id AS vehicleId, r.startDate AS startDate, r.endDate AS endDate " +
+           "FROM Reservation r WHERE r.user.id = :userId")
+    List<BookedInterval> findIntervalsByUserId(@Param("userId") Long userId);
+
+    // Same overlap rule as findOverlappingReservations, for many vehicles at once
+    @Query("SELECT DISTINCT r.vehicle.id FROM Reservation r WHERE r.vehicle.id IN :vehicleIds AND " +
+           "r.status <> :excludeStatus AND r.startDate <= :endDate AND r.endDate >= :startDate")
+    List<Long> findVehicleIdsWithOverlap(
+            @Param("vehicleIds") Collection<Long> vehicleIds,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("excludeStatus") ReservationStatus excludeStatus);
+}
@@ -0,0 +1,23 @@
+package com.rentacar.repository;
+
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Reservation count and revenue of one vehicle type and status, for reservations starting on one day.
+ */
+public interface RevenueBucket {
+
+    Vehicle.VehicleType getVehicleType();
+
+    Reservation.ReservationStatus getStatus();
+
+    LocalDate getDay();
+
+    long getReservations();
+
+    BigDecimal getRevenue();
+}
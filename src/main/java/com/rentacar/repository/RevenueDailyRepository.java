@@ -0,0 +1,87 @@
+package com.rentacar.repository;
+
+import com.rentacar.model.Reservation.ReservationStatus;
+import com.rentacar.model.RevenueDaily;
+import com.rentacar.model.RevenueDailyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RevenueDailyRepository extends JpaRepository<RevenueDaily, RevenueDailyId> {
+
+    // The type a reservation is bucketed under, for rows booked before it was stored as well
+    String BUCKET_TYPE = "COALESCE(r.revenue_vehicle_type, v.type)";
+
+    String ADD_ON_CONFLICT = "ON CONFLICT (day, vehicle_type, status) DO UPDATE SET " +
+            "reservations = revenue_daily.reservations + EXCLUDED.reservations, " +
+            "revenue = revenue_daily.revenue + EXCLUDED.revenue";
+
+    // Adds to the row of the day, vehicle type and status, creating it if needed
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (day, vehicle_type, status, reservations, revenue) " +
+                   "VALUES (:day, :vehicleType, :status, :reservations, :revenue) " + ADD_ON_CONFLICT,
+           nativeQuery = true)
+    int add(@Param("day") LocalDate day,
+            @Param("vehicleType") String vehicleType,
+            @Param("status") String status,
+            @Param("reservations") long reservations,
+            @Param("revenue") BigDecimal revenue);
+
+    // Takes a vehicle's reservations out of their rows, before they are deleted with the vehicle
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (day, vehicle_type, status, reservations, revenue) " +
+                   "SELECT CAST(r.start_date AS DATE), " + BUCKET_TYPE + ", r.status, -COUNT(*), -SUM(r.total_cost) " +
+                   "FROM reservation r JOIN vehicle v ON v.id = r.vehicle_id WHERE r.vehicle_id = :vehicleId " +
+                   "GROUP BY CAST(r.start_date AS DATE), " + BUCKET_TYPE + ", r.status " + ADD_ON_CONFLICT,
+           nativeQuery = true)
+    int subtractReservationsOfVehicle(@Param("vehicleId") Long vehicleId);
+
+    // Takes a user's reservations out of their rows, before they are deleted with the user
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (day, vehicle_type, status, reservations, revenue) " +
+                   "SELECT CAST(r.start_date AS DATE), " + BUCKET_TYPE + ", r.status, -COUNT(*), -SUM(r.total_cost) " +
+                   "FROM reservation r JOIN vehicle v ON v.id = r.vehicle_id WHERE r.user_id = :userId " +
+                   "GROUP BY CAST(r.start_date AS DATE), " + BUCKET_TYPE + ", r.status " + ADD_ON_CONFLICT,
+           nativeQuery = true)
+    int subtractReservationsOfUser(@Param("userId") Long userId);
+
+    // Held until the rebuild commits, so changes made meanwhile are applied on top of the new rows
+    @Modifying
+    @Query(value = "LOCK TABLE revenue_daily IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockTable();
+
+    @Modifying
+    @Query(value = "DELETE FROM revenue_daily", nativeQuery = true)
+    int deleteAllRows();
+
+    // Reservations booked before the type was stored on them fall back to the vehicle's current type
+    @Modifying
+    @Query(value = "UPDATE reservation r SET revenue_vehicle_type = v.type FROM vehicle v " +
+                   "WHERE v.id = r.vehicle_id AND r.revenue_vehicle_type IS NULL",
+           nativeQuery = true)
+    int fillMissingVehicleTypes();
+
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (day, vehicle_type, status, reservations, revenue) " +
+                   "SELECT CAST(r.start_date AS DATE), r.revenue_vehicle_type, r.status, COUNT(*), SUM(r.total_cost) " +
+                   "FROM reservation r " +
+                   "GROUP BY CAST(r.start_date AS DATE), r.revenue_vehicle_type, r.status",
+           nativeQuery = true)
+    int insertFromReservations();
+
+    @Query("SELECT d.id.vehicleType AS vehicleType, d.id.status AS status, d.id.day AS day, " +
+           "d.reservations AS reservations, d.revenue AS revenue FROM RevenueDaily d " +
+           "WHERE d.id.status IN :statuses AND d.id.day BETWEEN :from AND :to AND d.reservations <> 0")
+    List<RevenueBucket> findBuckets(
+            @Param("statuses") Collection<ReservationStatus> statuses,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+}
@@ -0,0 +1,13 @@
+package com.rentacar.repository;
+
+import com.rentacar.model.Reservation;
+
+/**
+ * Number of reservations in one status.
+ */
+public interface StatusCount {
+
+    Reservation.ReservationStatus getStatus();
+
+    long getCount();
+}
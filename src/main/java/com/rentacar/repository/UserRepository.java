@@ -1,19 +1,28 @@
 package com.rentacar.repository;
 
 import com.rentacar.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
 
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.reservations WHERE u.email = :email")
+    // Keyset page on the primary key; the Pageable only carries the limit
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable limit);
+
+    // Reservations are lazy; these load them and their vehicles in the same statement
+    @EntityGraph("User.reservations")
+    @Query("SELECT u FROM User u WHERE u.email = :email")
     Optional<User> findByEmailWithReservations(@Param("email") String email);
 
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.reservations WHERE u.id = :id")
+    @EntityGraph("User.reservations")
+    @Query("SELECT u FROM User u WHERE u.id = :id")
     Optional<User> findByIdWithReservations(@Param("id") Long id);
 }
@@ -0,0 +1,13 @@
+package com.rentacar.repository;
+
+/**
+ * Number of reservations of one user, in total and confirmed.
+ */
+public interface UserReservationCount {
+
+    Long getUserId();
+
+    long getReservations();
+
+    long getActive();
+}
@@ -0,0 +1,25 @@
+package com.rentacar.repository;
+
+import com.rentacar.dto.LocationPing;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Position writes that bypass the entity lifecycle, for high-volume telemetry.
+ */
+public interface VehicleLocationRepository {
+
+    /**
+     * Writes latitude, longitude and location of every timestamped ping as one JDBC batch and
+     * returns the update count per ping; 0 means the vehicle no longer exists or already has a
+     * position taken at or after the ping's timestamp.
+     */
+    int[] updateLocations(List<LocationPing> pings);
+
+    /**
+     * Records a position set at {@code at} by other means than telemetry, so reports taken before
+     * it are skipped like late ones. Returns 0 when the vehicle already has a later position.
+     */
+    int markPositionAt(Long vehicleId, Instant at);
+}
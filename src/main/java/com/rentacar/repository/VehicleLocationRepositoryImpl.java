@@ -0,0 +1,42 @@
+package com.rentacar.repository;
+
+import com.rentacar.dto.LocationPing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class VehicleLocationRepositoryImpl implements VehicleLocationRepository {
+
+    // A ping older than the last one written leaves the row alone, so a late report cannot move it back
+    private static final String UPDATE_LOCATION =
+            "UPDATE vehicle SET latitude = ?, longitude = ?, " +
+            "location = ST_SetSRID(ST_MakePoint(?, ?), 4326), last_ping_at = ? " +
+            "WHERE id = ? AND (last_ping_at IS NULL OR last_ping_at < ?)";
+
+    private static final String MARK_POSITION_AT =
+            "UPDATE vehicle SET last_ping_at = ? WHERE id = ? AND (last_ping_at IS NULL OR last_ping_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] updateLocations(List<LocationPing> pings) {
+        // Joins the surrounding JPA transaction through the shared connection
+        return jdbcTemplate.batchUpdate(UPDATE_LOCATION, pings.stream()
+                .map(ping -> {
+                    Timestamp taken = Timestamp.from(ping.timestamp());
+                    return new Object[]{ping.latitude(), ping.longitude(),
+                            ping.longitude(), ping.latitude(), taken, ping.vehicleId(), taken};
+                })
+                .toList());
+    }
+
+    @Override
+    public int markPositionAt(Long vehicleId, Instant at) {
+        Timestamp taken = Timestamp.from(at);
+        return jdbcTemplate.update(MARK_POSITION_AT, taken, vehicleId, taken);
+    }
+}
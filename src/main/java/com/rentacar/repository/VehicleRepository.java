@@ -2,21 +2,44 @@ package com.rentacar.repository;
 
 import com.rentacar.model.Reservation;
 import com.rentacar.model.Vehicle;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
+public interface VehicleRepository extends JpaRepository<Vehicle, Long>, JpaSpecificationExecutor<Vehicle>,
+        VehicleLocationRepository {
     
     List<Vehicle> findByAvailableTrue();
     
     List<Vehicle> findByType(Vehicle.VehicleType type);
 
+    // Keyset page on the primary key; the Pageable only carries the limit
+    List<Vehicle> findByIdGreaterThanOrderByIdAsc(Long id, Pageable limit);
+
+    // Forward-only cursor; must be consumed inside a transaction so the driver honours the fetch size
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT v FROM Vehicle v WHERE v.available = true " +
+           "AND v.latitude IS NOT NULL AND v.longitude IS NOT NULL ORDER BY v.id")
+    Stream<Vehicle> streamAvailableWithLocation();
+
     @Query("SELECT v FROM Vehicle v WHERE v.id NOT IN " +
            "(SELECT r.vehicle.id FROM Reservation r WHERE " +
            "((r.startDate <= :endDate AND r.endDate >= :startDate) AND r.status <> :excludeStatus))")
@@ -24,4 +47,36 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             @Param("excludeStatus") Reservation.ReservationStatus excludeStatus);
+
+    // Spatial queries below rely on the GiST index on CAST(location AS geography), see V4 migration
+    @Query(value = "SELECT v.* FROM vehicle v WHERE v.location IS NOT NULL AND " +
+                   "ST_DWithin(CAST(v.location AS geography), " +
+                   "CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :radiusMeters)",
+           nativeQuery = true)
+    List<Vehicle> findWithinDistance(
+            @Param("latitude") double latitude,
+            @Param("longitude") double longitude,
+            @Param("radiusMeters") double radiusMeters);
+
+    @Query(value = "SELECT v.* FROM vehicle v WHERE v.location IS NOT NULL " +
+                   "ORDER BY CAST(v.location AS geography) <-> " +
+                   "CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Vehicle> findNearest(
+            @Param("latitude") double latitude,
+            @Param("longitude") double longitude,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT v.* FROM vehicle v WHERE v.location IS NOT NULL AND v.available = true " +
+                   "AND (CAST(:type AS varchar) IS NULL OR v.type = CAST(:type AS varchar)) " +
+                   "ORDER BY CAST(v.location AS geography) <-> " +
+                   "CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Vehicle> findNearestAvailable(
+            @Param("latitude") double latitude,
+            @Param("longitude") double longitude,
+            @Param("type") String type,
+            @Param("limit") int limit);
 }
@@ -0,0 +1,65 @@
+package com.rentacar.repository;
+
+import com.rentacar.dto.VehicleSearchCriteria;
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Query building blocks of the combined vehicle search. Only the predicates for the filters that
+ * are actually set end up in the SQL, so the database plans one query over exactly those.
+ */
+public final class VehicleSpecifications {
+
+    private VehicleSpecifications() {
+    }
+
+    /**
+     * Available vehicles matching every attribute and time range filter of the criteria. The
+     * location filter is not part of it; callers restrict the ids with {@link #idIn} instead.
+     */
+    public static Specification<Vehicle> matching(VehicleSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isTrue(root.get("available")));
+            if (criteria.type() != null) {
+                predicates.add(cb.equal(root.get("type"), criteria.type()));
+            }
+            if (criteria.minPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("dailyRate"), criteria.minPrice()));
+            }
+            if (criteria.maxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("dailyRate"), criteria.maxPrice()));
+            }
+            if (criteria.minSeats() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("seats"), criteria.minSeats()));
+            }
+            if (criteria.fuelType() != null) {
+                predicates.add(cb.equal(cb.lower(root.get("fuelType")), criteria.fuelType().toLowerCase()));
+            }
+            if (criteria.hasTimeRange()) {
+                // Same overlap rule as VehicleRepository.findAvailableInTimeRange
+                Subquery<Long> overlapping = query.subquery(Long.class);
+                Root<Reservation> reservation = overlapping.from(Reservation.class);
+                overlapping.select(reservation.get("id")).where(
+                        cb.equal(reservation.get("vehicle"), root),
+                        cb.lessThanOrEqualTo(reservation.get("startDate"), criteria.endDate()),
+                        cb.greaterThanOrEqualTo(reservation.get("endDate"), criteria.startDate()),
+                        cb.notEqual(reservation.get("status"), Reservation.ReservationStatus.CANCELED));
+                predicates.add(cb.not(cb.exists(overlapping)));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<Vehicle> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+}
@@ -0,0 +1,272 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.ReservationsDeletedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.BookedInterval;
+import com.rentacar.repository.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Booked hours per vehicle as a bitmap over a rolling horizon, so "which vehicles are taken between
+ * A and B" is a few word operations per booked vehicle instead of a scan of the reservation table.
+ * <p>
+ * Bit {@code h} is set when a non-canceled reservation covers any instant of hour {@code h} after
+ * the origin (midnight of the day of the last rebuild). A set bit strictly inside the queried range
+ * therefore proves an overlap, while the first and last hour may be only partly covered by the
+ * query or by the reservation; vehicles hit only there are checked against the database. Ranges not
+ * inside the horizon are not answered and the caller falls back to the database.
+ * <p>
+ * The calendar is built at startup and rebuilt nightly, which moves the horizon forward; in between
+ * it follows {@link ReservationChangedEvent}s. A cancellation re-reads the vehicle's remaining
+ * reservations, since reservations may share an hour; so do reservations deleted with their user,
+ * while a deleted vehicle just loses its bitmap.
+ */
+@Component
+@Slf4j
+public class AvailabilityCalendar {
+
+    private static final Reservation.ReservationStatus RELEASED = Reservation.ReservationStatus.CANCELED;
+
+    // Keeps IN lists of the boundary check well below the driver's bind parameter limit
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final ReservationRepository reservationRepository;
+    private final int horizonHours;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock; origin is null until the first build
+    private LocalDateTime origin;
+    private Map<Long, long[]> booked = new HashMap<>();
+
+    // Changes that arrive while a rebuild is reading the table, replayed onto the new bitmaps
+    private final Queue<Change> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+    private volatile boolean rebuilding;
+
+    public AvailabilityCalendar(ReservationRepository reservationRepository,
+                                @Value("${rentacar.availability.horizon-days:90}") int horizonDays) {
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("Horizon must be at least one day: " + horizonDays);
+        }
+        this.reservationRepository = reservationRepository;
+        this.horizonHours = horizonDays * 24;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Could not build the availability calendar, searches use the database", e);
+        }
+    }
+
+    @Scheduled(cron = "${rentacar.availability.rebuild-cron:0 0 3 * * *}")
+    public void rebuild() {
+        rebuild(LocalDate.now().atStartOfDay());
+    }
+
+    synchronized void rebuild(LocalDateTime newOrigin) {
+        rebuilding = true;
+        try {
+            Map<Long, long[]> next = new HashMap<>();
+            List<BookedInterval> intervals = reservationRepository.findBookedIntervals(
+                    newOrigin, newOrigin.plusHours(horizonHours), RELEASED);
+            for (BookedInterval interval : intervals) {
+                mark(next, newOrigin, interval.getVehicleId(), interval.getStartDate(), interval.getEndDate());
+            }
+
+            lock.writeLock().lock();
+            try {
+                origin = newOrigin;
+                booked = next;
+                Change change;
+                while ((change = changesDuringRebuild.poll()) != null) {
+                    applyLocked(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Availability calendar built from {} reservations for {} vehicles", intervals.size(), next.size());
+        } finally {
+            rebuilding = false;
+            changesDuringRebuild.clear();
+        }
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.isReleased()) {
+            apply(remainingBookings(event.vehicleId()));
+        } else {
+            apply(new Change(event.vehicleId(), List.of(new Interval(event.startDate(), event.endDate())), false));
+        }
+    }
+
+    @EventListener
+    public void onReservationsDeleted(ReservationsDeletedEvent event) {
+        for (Long vehicleId : event.vehicleIds()) {
+            apply(remainingBookings(vehicleId));
+        }
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (event.isDeleted()) {
+            apply(new Change(event.vehicleId(), List.of(), true));
+        }
+    }
+
+    private Change remainingBookings(long vehicleId) {
+        // Wide enough for the current horizon and for one a running rebuild is moving to
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        List<Interval> remaining = reservationRepository.findBookedIntervals(
+                        vehicleId, today.minusDays(1), today.plusHours(horizonHours).plusDays(1), RELEASED)
+                .stream()
+                .map(interval -> new Interval(interval.getStartDate(), interval.getEndDate()))
+                .toList();
+        return new Change(vehicleId, remaining, true);
+    }
+
+    private void apply(Change change) {
+        if (rebuilding) {
+            changesDuringRebuild.add(change);
+        }
+        lock.writeLock().lock();
+        try {
+            applyLocked(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vehicles with a reservation overlapping {@code [start, end]} under the rule of
+     * {@link ReservationRepository#findOverlappingReservations}, or {@code null} when the range is not
+     * inside the horizon and the database has to answer.
+     */
+    public Set<Long> findBookedVehicleIds(LocalDateTime start, LocalDateTime end) {
+        Set<Long> result = new HashSet<>();
+        List<Long> boundaryOnly = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (origin == null || end.isBefore(start) || start.isBefore(origin)
+                    || !end.isBefore(origin.plusHours(horizonHours))) {
+                return null;
+            }
+            int first = slot(origin, start);
+            int last = slot(origin, end);
+            for (Map.Entry<Long, long[]> entry : booked.entrySet()) {
+                long[] words = entry.getValue();
+                if (last - first > 1 && anySet(words, first + 1, last - 1)) {
+                    result.add(entry.getKey());
+                } else if (anySet(words, first, first) || anySet(words, last, last)) {
+                    boundaryOnly.add(entry.getKey());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (int from = 0; from < boundaryOnly.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> ids = boundaryOnly.subList(from, Math.min(boundaryOnly.size(), from + MAX_IDS_PER_QUERY));
+            result.addAll(reservationRepository.findVehicleIdsWithOverlap(ids, start, end, RELEASED));
+        }
+        return result;
+    }
+
+    // Callers must hold the write lock
+    private void applyLocked(Change change) {
+        if (origin == null) {
+            return;
+        }
+        if (change.replace()) {
+            booked.remove(change.vehicleId());
+        }
+        for (Interval interval : change.intervals()) {
+            mark(booked, origin, change.vehicleId(), interval.start(), interval.end());
+        }
+    }
+
+    private void mark(Map<Long, long[]> target, LocalDateTime from, long vehicleId,
+                      LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || end.isBefore(from)) {
+            return;
+        }
+        int first = Math.max(0, slot(from, start));
+        int last = Math.min(horizonHours - 1, slot(from, end));
+        if (first > last) {
+            return;
+        }
+        long[] words = target.computeIfAbsent(vehicleId, id -> new long[(horizonHours + 63) >>> 6]);
+        setRange(words, first, last);
+    }
+
+    // Hour slot of the instant, clamped to the int range; may be negative or beyond the horizon
+    private static int slot(LocalDateTime origin, LocalDateTime time) {
+        long hours = Math.floorDiv(Duration.between(origin, time).toMinutes(), 60);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, hours));
+    }
+
+    static void setRange(long[] words, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+
+    static boolean anySet(long[] words, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            return (words[firstWord] & firstMask & lastMask) != 0;
+        }
+        if ((words[firstWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            if (words[w] != 0) {
+                return true;
+            }
+        }
+        return (words[lastWord] & lastMask) != 0;
+    }
+
+    private record Interval(LocalDateTime start, LocalDateTime end) {
+    }
+
+    // replace: the intervals are all the vehicle's bookings; otherwise they are added to its bitmap
+    private record Change(long vehicleId, List<Interval> intervals, boolean replace) {
+    }
+}
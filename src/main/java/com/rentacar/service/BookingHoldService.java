@@ -0,0 +1,117 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.ReservationHold;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.util.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Cancels PENDING reservations whose payment hold ran out, which releases the vehicle in the
+ * availability calendar and the conflict index.
+ * <p>
+ * Open holds sit in a {@link HierarchicalTimingWheel}: loaded at startup, then following
+ * {@link ReservationChangedEvent}s. Each tick only looks at the holds that are due, instead of
+ * scanning the reservation table. {@link ReservationService#expireHold} re-checks the row under a
+ * lock, so a payment that arrived meanwhile wins.
+ */
+@Component
+@Slf4j
+public class BookingHoldService {
+
+    private static final int WHEEL_SIZE = 60;
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationService reservationService;
+    // Guarded by itself
+    private final HierarchicalTimingWheel<Long> wheel;
+
+    public BookingHoldService(ReservationRepository reservationRepository, ReservationService reservationService,
+                              @Value("${rentacar.reservations.hold-tick-ms:1000}") long tickMillis) {
+        this.reservationRepository = reservationRepository;
+        this.reservationService = reservationService;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            int held = reservationService.holdUnheldReservations();
+            if (held > 0) {
+                log.info("Started payment holds for {} pending reservations without one", held);
+            }
+            List<ReservationHold> holds = reservationRepository.findHolds(Reservation.ReservationStatus.PENDING);
+            synchronized (wheel) {
+                for (ReservationHold hold : holds) {
+                    wheel.schedule(hold.getId(), toMillis(hold.getHoldExpiresAt()));
+                }
+            }
+            log.info("Loaded {} open booking holds", holds.size());
+        } catch (Exception e) {
+            log.error("Could not load open booking holds, abandoned checkouts are not released", e);
+        }
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        synchronized (wheel) {
+            if (event.status() == Reservation.ReservationStatus.PENDING && event.holdExpiresAt() != null) {
+                wheel.schedule(event.reservationId(), toMillis(event.holdExpiresAt()));
+            } else {
+                wheel.cancel(event.reservationId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rentacar.reservations.hold-tick-ms:1000}")
+    public void expireDueHolds() {
+        expireDueHolds(System.currentTimeMillis());
+    }
+
+    void expireDueHolds(long nowMillis) {
+        List<Long> due;
+        synchronized (wheel) {
+            due = wheel.advanceTo(nowMillis);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), ZoneId.systemDefault());
+        int released = 0;
+        for (Long reservationId : due) {
+            try {
+                if (reservationService.expireHold(reservationId, now)) {
+                    released++;
+                }
+            } catch (Exception e) {
+                log.error("Could not expire the hold of reservation {}, retrying later", reservationId, e);
+                synchronized (wheel) {
+                    wheel.schedule(reservationId, nowMillis + RETRY_DELAY_MS);
+                }
+            }
+        }
+        log.info("Released {} of {} due booking holds", released, due.size());
+    }
+
+    public int pendingHolds() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,107 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Compacted log of changes to the public vehicle list, ordered by a fleet version that every
+ * committed vehicle change bumps. Only the latest change per vehicle is kept, so the log never
+ * holds more entries than there are vehicles.
+ * <p>
+ * Versions are handed out as {@code <epoch>.<counter>}, where the epoch identifies this instance of
+ * the log. A version from another epoch, such as one handed out before a restart, is unknown and
+ * clients holding it are told to reload the full list.
+ */
+@Component
+public class FleetChangeLog {
+
+    private final String epoch;
+    private volatile long version;
+
+    // version -> change, with at most one entry per vehicle; written under the instance lock
+    private final NavigableMap<Long, Change> changes = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> latestVersion = new HashMap<>();
+
+    public FleetChangeLog() {
+        this(Long.toString(System.currentTimeMillis(), 36));
+    }
+
+    FleetChangeLog(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public String currentVersion() {
+        return token(version);
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        // A vehicle that is gone, unavailable or without a position drops out of the public list
+        boolean removed = event.current() == null || !event.current().available();
+        record(event.vehicleId(), removed);
+    }
+
+    synchronized void record(long vehicleId, boolean removed) {
+        long next = version + 1;
+        Long previous = latestVersion.put(vehicleId, next);
+        if (previous != null) {
+            changes.remove(previous);
+        }
+        changes.put(next, new Change(vehicleId, removed));
+        // Published last, so a reader that sees the version also sees every change up to it
+        version = next;
+    }
+
+    /**
+     * Changes after {@code since}, up to {@link Changes#version()}. A change newer than that version
+     * may also be included; applying it twice is harmless.
+     */
+    public Changes changesSince(String since) {
+        long current = version;
+        long sinceVersion = parse(since);
+        if (sinceVersion < 0 || sinceVersion > current) {
+            return new Changes(token(current), true, List.of(), List.of());
+        }
+        List<Long> upserts = new ArrayList<>();
+        List<Long> deletions = new ArrayList<>();
+        for (Change change : changes.tailMap(sinceVersion, false).values()) {
+            (change.removed() ? deletions : upserts).add(change.vehicleId());
+        }
+        return new Changes(token(current), false, upserts, deletions);
+    }
+
+    private String token(long counter) {
+        return epoch + "." + counter;
+    }
+
+    // The counter of a version from this epoch, or -1 for anything else
+    private long parse(String token) {
+        int dot = token.lastIndexOf('.');
+        if (dot < 0 || !token.regionMatches(0, epoch, 0, dot) || dot != epoch.length()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token, dot + 1, token.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Vehicle ids changed since the requested version. {@code reset} means the version is unknown to
+     * this log (from before a restart or malformed) and the client has to reload the full list.
+     */
+    public record Changes(String version, boolean reset, List<Long> upserts, List<Long> deletions) {
+    }
+
+    private record Change(long vehicleId, boolean removed) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.FleetStatistics;
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.UserChangedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.StatusCount;
+import com.rentacar.repository.UserRepository;
+import com.rentacar.repository.VehicleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Vehicle, user and per-status reservation counts for the admin dashboard, so it does not load
+ * whole tables to count them.
+ * <p>
+ * The counts are taken with {@code count(*)} at startup, then follow the change events and are
+ * reconciled periodically, which corrects changes made behind the services' back (such as the
+ * seeded admin account) or committed while a reconcile was counting. Deleting a vehicle or user
+ * also deletes its reservations, so it marks the counts stale and the next read counts again.
+ */
+@Service
+@Slf4j
+public class FleetStatisticsService {
+
+    private static final Reservation.ReservationStatus[] STATUSES = Reservation.ReservationStatus.values();
+
+    private final VehicleRepository vehicleRepository;
+    private final UserRepository userRepository;
+    private final ReservationRepository reservationRepository;
+
+    private final AtomicLong vehicles = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+    // Indexed by status ordinal
+    private final AtomicLongArray reservations = new AtomicLongArray(STATUSES.length);
+    private volatile boolean stale = true;
+
+    public FleetStatisticsService(VehicleRepository vehicleRepository, UserRepository userRepository,
+                                  ReservationRepository reservationRepository) {
+        this.vehicleRepository = vehicleRepository;
+        this.userRepository = userRepository;
+        this.reservationRepository = reservationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Could not load the dashboard statistics, retrying on the next read", e);
+        }
+    }
+
+    @Scheduled(cron = "${rentacar.statistics.reconcile-cron:0 */15 * * * *}")
+    public synchronized void reconcile() {
+        long vehicleCount = vehicleRepository.count();
+        long userCount = userRepository.count();
+        long[] byStatus = new long[STATUSES.length];
+        for (StatusCount row : reservationRepository.countByStatus()) {
+            byStatus[row.getStatus().ordinal()] = row.getCount();
+        }
+
+        stale = false;
+        logDrift("vehicles", vehicles.getAndSet(vehicleCount), vehicleCount);
+        logDrift("users", users.getAndSet(userCount), userCount);
+        for (Reservation.ReservationStatus status : STATUSES) {
+            long count = byStatus[status.ordinal()];
+            logDrift(status + " reservations", reservations.getAndSet(status.ordinal(), count), count);
+        }
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (event.kind() == ChangeKind.CREATED) {
+            vehicles.incrementAndGet();
+        } else if (event.kind() == ChangeKind.DELETED) {
+            vehicles.decrementAndGet();
+            stale = true;
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.kind() == ChangeKind.CREATED) {
+            users.incrementAndGet();
+        } else if (event.kind() == ChangeKind.DELETED) {
+            users.decrementAndGet();
+            stale = true;
+        }
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.previousStatus() == event.status()) {
+            return;
+        }
+        if (event.previousStatus() != null) {
+            reservations.decrementAndGet(event.previousStatus().ordinal());
+        }
+        reservations.incrementAndGet(event.status().ordinal());
+    }
+
+    public FleetStatistics getStatistics() {
+        if (stale) {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.warn("Could not reconcile the dashboard statistics, showing the last known counts", e);
+            }
+        }
+        Map<Reservation.ReservationStatus, Long> byStatus = new EnumMap<>(Reservation.ReservationStatus.class);
+        long total = 0;
+        for (Reservation.ReservationStatus status : STATUSES) {
+            long count = reservations.get(status.ordinal());
+            byStatus.put(status, count);
+            total += count;
+        }
+        return new FleetStatistics(vehicles.get(), users.get(), total, byStatus);
+    }
+
+    private static void logDrift(String what, long counted, long actual) {
+        if (counted != actual) {
+            log.debug("Dashboard count of {} drifted: {} counted, {} in the database", what, counted, actual);
+        }
+    }
+}
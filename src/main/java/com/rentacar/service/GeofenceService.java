@@ -0,0 +1,130 @@
+package com.rentacar.service;
+
+import com.rentacar.event.GeofenceTransitionEvent;
+import com.rentacar.event.GeofenceTransitionEvent.Transition;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.GeofenceIndex;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Geofence;
+import com.rentacar.repository.GeofenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Polygon;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks every committed vehicle position change against the active geofences and publishes a
+ * {@link GeofenceTransitionEvent} for each zone the vehicle entered or left.
+ * <p>
+ * The zones of the previous and the new position are compared, both taken from the change event,
+ * so no per-vehicle state is kept and a restart does not produce spurious transitions. A vehicle's
+ * first known position counts as entering the zones it is in; losing the position or being deleted
+ * is not an exit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GeofenceService {
+
+    private static final long[] NONE = {};
+
+    private final GeofenceRepository geofenceRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Replaced as a whole whenever the zones change
+    private volatile GeofenceIndex index = GeofenceIndex.EMPTY;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Could not load geofences, vehicle positions are not checked against them", e);
+        }
+    }
+
+    public void reload() {
+        Map<Long, Polygon> areas = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (Geofence geofence : geofenceRepository.findByActiveTrue()) {
+            areas.put(geofence.getId(), geofence.getArea());
+            names.put(geofence.getId(), geofence.getName());
+        }
+        index = new GeofenceIndex(areas, names);
+        log.info("Loaded {} active geofences", areas.size());
+    }
+
+    public List<Geofence> getAllGeofences() {
+        return geofenceRepository.findAll();
+    }
+
+    public Geofence createGeofence(String name, Polygon area) {
+        Geofence geofence = new Geofence();
+        geofence.setName(name);
+        geofence.setArea(area);
+        Geofence saved = geofenceRepository.save(geofence);
+        reload();
+        return saved;
+    }
+
+    public void deleteGeofence(Long id) {
+        geofenceRepository.deleteById(id);
+        reload();
+    }
+
+    /**
+     * Ids of the active zones covering the position, ascending.
+     */
+    public long[] zonesAt(double latitude, double longitude) {
+        return index.zonesAt(latitude, longitude);
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        GeofenceIndex zones = index;
+        VehicleSnapshot current = event.current();
+        if (zones.size() == 0 || current == null) {
+            return;
+        }
+        VehicleSnapshot previous = event.previous();
+        if (previous != null && previous.latitude() == current.latitude()
+                && previous.longitude() == current.longitude()) {
+            return;
+        }
+
+        long[] before = previous != null ? zones.zonesAt(previous.latitude(), previous.longitude()) : NONE;
+        long[] after = zones.zonesAt(current.latitude(), current.longitude());
+        // Both are sorted, so one merge pass finds the zones only one side contains
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            if (j == after.length || (i < before.length && before[i] < after[j])) {
+                publish(event.vehicleId(), zones, before[i++], Transition.EXIT, current);
+            } else if (i == before.length || after[j] < before[i]) {
+                publish(event.vehicleId(), zones, after[j++], Transition.ENTER, current);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private void publish(long vehicleId, GeofenceIndex zones, long zoneId, Transition transition,
+                         VehicleSnapshot position) {
+        String name = zones.name(zoneId);
+        if (transition == Transition.EXIT) {
+            log.info("Vehicle {} left geofence {} ({})", vehicleId, zoneId, name);
+        } else {
+            log.debug("Vehicle {} entered geofence {} ({})", vehicleId, zoneId, name);
+        }
+        eventPublisher.publishEvent(new GeofenceTransitionEvent(vehicleId, zoneId, name, transition,
+                position.latitude(), position.longitude()));
+    }
+}
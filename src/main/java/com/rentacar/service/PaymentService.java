@@ -1,13 +1,17 @@
 package com.rentacar.service;
 
+import com.rentacar.exception.PaymentException;
 import com.rentacar.model.Payment;
 import com.rentacar.model.Reservation;
 import com.rentacar.repository.PaymentRepository;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +25,7 @@ import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PaymentService {
 
     private final PaymentRepository paymentRepository;
@@ -55,17 +60,25 @@ public class PaymentService {
 
     @Transactional
     public Payment processPayment(Reservation reservation, String paymentIntentId) {
+        // Lock the reservation so an expiring hold and this payment cannot both succeed
+        Reservation current = reservationService.getReservationForUpdate(reservation.getId())
+                .orElseThrow(() -> new PaymentException("Reservation not found", reservation.getId()));
+        if (current.getStatus() == Reservation.ReservationStatus.CANCELED) {
+            // Stripe already captured the charge, and the vehicle may be booked by someone else by now
+            throw refundExpiredHold(current.getId(), paymentIntentId);
+        }
+
         // Record the payment
         Payment payment = new Payment();
-        payment.setReservation(reservation);
+        payment.setReservation(current);
         payment.setTransactionId(paymentIntentId);
-        payment.setAmount(reservation.getTotalCost());
+        payment.setAmount(current.getTotalCost());
         payment.setPaymentDate(LocalDateTime.now());
         payment.setStatus(Payment.PaymentStatus.COMPLETED);
         payment.setMethod(Payment.PaymentMethod.CREDIT_CARD);
         
         // Update reservation status
-        reservationService.confirmReservation(reservation.getId());
+        reservationService.confirmReservation(current.getId());
         
         return paymentRepository.save(payment);
     }
@@ -85,10 +98,7 @@ public class PaymentService {
         Payment payment = paymentOpt.get();
         
         // Process refund through Stripe
-        Map<String, Object> params = new HashMap<>();
-        params.put("payment_intent", paymentIntentId);
-        
-        com.stripe.model.Refund.create(params);
+        createRefund(paymentIntentId, RequestOptions.getDefault());
         
         // Update our payment record
         payment.setStatus(Payment.PaymentStatus.REFUNDED);
@@ -98,4 +108,29 @@ public class PaymentService {
         
         return paymentRepository.save(payment);
     }
+
+    // Returns the exception to fail the payment with, telling whether the money went back
+    private PaymentException refundExpiredHold(Long reservationId, String paymentIntentId) {
+        try {
+            // Keyed on the intent, so a retried confirmation does not refund twice
+            createRefund(paymentIntentId, RequestOptions.builder()
+                    .setIdempotencyKey("expired-hold-" + paymentIntentId)
+                    .build());
+        } catch (StripeException e) {
+            log.error("Could not refund payment {} of reservation {} after its hold expired",
+                    paymentIntentId, reservationId, e);
+            return new PaymentException("The reservation hold expired before the payment arrived and the "
+                    + "automatic refund failed, please contact us", reservationId);
+        }
+        log.info("Refunded payment {} of reservation {}, its hold expired before the payment arrived",
+                paymentIntentId, reservationId);
+        return new PaymentException("The reservation hold expired before the payment arrived, "
+                + "the payment has been refunded", reservationId);
+    }
+
+    private static void createRefund(String paymentIntentId, RequestOptions options) throws StripeException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("payment_intent", paymentIntentId);
+        Refund.create(params, options);
+    }
 }
@@ -0,0 +1,212 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.ReservationsDeletedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.BookedInterval;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.util.IntervalTree;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Non-canceled reservations per vehicle in an {@link IntervalTree}, so a booking that clashes with
+ * a known reservation is rejected in O(log n) without a query.
+ * <p>
+ * A hit is a hint: the booking is only rejected once
+ * {@link ReservationRepository#findOverlappingReservations}, the authoritative check, confirms it,
+ * and intervals it does not confirm are evicted. The index is loaded at startup, follows
+ * {@link ReservationChangedEvent}s, drops the reservations deleted with their user or vehicle and is
+ * reloaded nightly, which also drops reservations that have ended.
+ */
+@Component
+@Slf4j
+public class ReservationConflictIndex {
+
+    private static final Reservation.ReservationStatus RELEASED = Reservation.ReservationStatus.CANCELED;
+
+    private final ReservationRepository reservationRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private Map<Long, IntervalTree<LocalDateTime>> trees = new HashMap<>();
+    private Map<Long, Booking> bookings = new HashMap<>();
+    private volatile boolean loaded;
+
+    // Changes that arrive while a reload is reading the table, replayed onto the new trees
+    private final Queue<Runnable> changesDuringReload = new ConcurrentLinkedQueue<>();
+    private volatile boolean reloading;
+
+    public ReservationConflictIndex(ReservationRepository reservationRepository) {
+        this.reservationRepository = reservationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Could not load the reservation conflict index, bookings are checked in the database only", e);
+        }
+    }
+
+    @Scheduled(cron = "${rentacar.reservations.conflict-index-cron:0 30 3 * * *}")
+    public void reload() {
+        reload(LocalDateTime.now());
+    }
+
+    synchronized void reload(LocalDateTime now) {
+        reloading = true;
+        try {
+            Map<Long, IntervalTree<LocalDateTime>> nextTrees = new HashMap<>();
+            Map<Long, Booking> nextBookings = new HashMap<>();
+            List<BookedInterval> intervals = reservationRepository.findBookedIntervalsEndingAfter(now, RELEASED);
+            for (BookedInterval interval : intervals) {
+                put(nextTrees, nextBookings, interval.getReservationId(),
+                        new Booking(interval.getVehicleId(), interval.getStartDate(), interval.getEndDate()));
+            }
+
+            lock.writeLock().lock();
+            try {
+                trees = nextTrees;
+                bookings = nextBookings;
+                loaded = true;
+                Runnable change;
+                while ((change = changesDuringReload.poll()) != null) {
+                    change.run();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Reservation conflict index loaded {} reservations for {} vehicles", intervals.size(), nextTrees.size());
+        } finally {
+            reloading = false;
+            changesDuringReload.clear();
+        }
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        change(() -> apply(event));
+    }
+
+    @EventListener
+    public void onReservationsDeleted(ReservationsDeletedEvent event) {
+        change(() -> event.reservationIds().forEach(id -> remove(trees, bookings, id)));
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (event.isDeleted()) {
+            change(() -> removeVehicle(event.vehicleId()));
+        }
+    }
+
+    /**
+     * Drops the vehicle's intervals overlapping {@code [start, end]}, once the database has shown
+     * that none of its reservations overlaps that range any more.
+     */
+    public void evict(long vehicleId, LocalDateTime start, LocalDateTime end) {
+        change(() -> {
+            IntervalTree<LocalDateTime> tree = trees.get(vehicleId);
+            if (tree != null) {
+                tree.overlapping(start, end).forEach(id -> remove(trees, bookings, id));
+            }
+        });
+    }
+
+    /**
+     * Whether a known non-canceled reservation of the vehicle overlaps {@code [start, end]} under the
+     * rule of {@link ReservationRepository#findOverlappingReservations}. False before the index is loaded.
+     */
+    public boolean hasConflict(long vehicleId, LocalDateTime start, LocalDateTime end) {
+        if (!loaded || end.isBefore(start)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            IntervalTree<LocalDateTime> tree = trees.get(vehicleId);
+            return tree != null && tree.overlaps(start, end);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bookings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Changes must be idempotent, so replaying one a reload has already seen is harmless
+    private void change(Runnable change) {
+        if (reloading) {
+            changesDuringReload.add(change);
+        }
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock
+    private void apply(ReservationChangedEvent event) {
+        if (event.isReleased()) {
+            remove(trees, bookings, event.reservationId());
+        } else if (event.startDate() != null && event.endDate() != null) {
+            put(trees, bookings, event.reservationId(), new Booking(event.vehicleId(), event.startDate(), event.endDate()));
+        }
+    }
+
+    // Callers must hold the write lock
+    private void removeVehicle(long vehicleId) {
+        if (trees.remove(vehicleId) != null) {
+            bookings.values().removeIf(booking -> booking.vehicleId() == vehicleId);
+        }
+    }
+
+    private static void put(Map<Long, IntervalTree<LocalDateTime>> trees, Map<Long, Booking> bookings,
+                            long reservationId, Booking booking) {
+        if (booking.end().isBefore(booking.start())) {
+            return;
+        }
+        remove(trees, bookings, reservationId);
+        trees.computeIfAbsent(booking.vehicleId(), id -> new IntervalTree<>())
+                .insert(reservationId, booking.start(), booking.end());
+        bookings.put(reservationId, booking);
+    }
+
+    private static void remove(Map<Long, IntervalTree<LocalDateTime>> trees, Map<Long, Booking> bookings,
+                               long reservationId) {
+        Booking previous = bookings.remove(reservationId);
+        if (previous == null) {
+            return;
+        }
+        IntervalTree<LocalDateTime> tree = trees.get(previous.vehicleId());
+        tree.remove(reservationId, previous.start());
+        if (tree.isEmpty()) {
+            trees.remove(previous.vehicleId());
+        }
+    }
+
+    private record Booking(long vehicleId, LocalDateTime start, LocalDateTime end) {
+    }
+}
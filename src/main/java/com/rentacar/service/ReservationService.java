@@ -1,36 +1,87 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.ReservationListItem;
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.exception.ReservationException;
 import com.rentacar.model.Reservation;
 import com.rentacar.model.User;
 import com.rentacar.model.Vehicle;
 import com.rentacar.repository.ReservationRepository;
-import com.rentacar.repository.VehicleRepository;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Slf4j
 public class ReservationService {
 
+    // exclusion_violation, raised by the reservation_vehicle_period_excl constraint (V7 migration)
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    private static final String VEHICLE_UNAVAILABLE = "Vehicle is not available during the specified time range";
+
     private final ReservationRepository reservationRepository;
-    private final VehicleRepository vehicleRepository;
+    private final VehicleService vehicleService;
+    private final ReservationConflictIndex conflictIndex;
+    private final RevenueRollupService revenueRollup;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration holdTtl;
 
     // Add explicit constructor to make autowiring more clear
-    public ReservationService(ReservationRepository reservationRepository, VehicleRepository vehicleRepository) {
+    public ReservationService(ReservationRepository reservationRepository, VehicleService vehicleService,
+                              ReservationConflictIndex conflictIndex, RevenueRollupService revenueRollup,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${rentacar.reservations.hold-ttl:15m}") Duration holdTtl) {
         this.reservationRepository = reservationRepository;
-        this.vehicleRepository = vehicleRepository;
+        this.vehicleService = vehicleService;
+        this.conflictIndex = conflictIndex;
+        this.revenueRollup = revenueRollup;
+        this.eventPublisher = eventPublisher;
+        this.holdTtl = holdTtl;
     }
 
     public List<Reservation> getAllReservations() {
         return reservationRepository.findAll();
     }
 
+    /**
+     * Up to {@code size} reservations, newest first, older than {@code cursor}, or the newest ones
+     * when it is null.
+     */
+    public KeysetPage<Reservation> getReservationPage(Long cursor, int size) {
+        List<Reservation> rows = reservationRepository.findByIdLessThanOrderByIdDesc(
+                cursor != null ? cursor : Long.MAX_VALUE, PageRequest.ofSize(size + 1));
+        return KeysetPage.of(rows, size, Reservation::getId);
+    }
+
+    /**
+     * Same keyset page as {@link #getReservationPage}, projected to the columns the admin list shows.
+     */
+    public KeysetPage<ReservationListItem> getReservationListPage(Long cursor, int size) {
+        List<ReservationListItem> rows = reservationRepository.findListItemsByIdLessThan(
+                cursor != null ? cursor : Long.MAX_VALUE, PageRequest.ofSize(size + 1));
+        return KeysetPage.of(rows, size, ReservationListItem::id);
+    }
+
+    public List<ReservationListItem> getReservationListByUser(User user) {
+        return reservationRepository.findListItemsByUserId(user.getId());
+    }
+
     public List<Reservation> getReservationsByUser(User user) {
         return reservationRepository.findByUser(user);
     }
@@ -43,14 +94,37 @@ public class ReservationService {
         return reservationRepository.findById(id);
     }
 
+    /**
+     * The reservation with its user and vehicle loaded, for pages that display them.
+     */
+    public Optional<Reservation> getReservationDetails(Long id) {
+        return reservationRepository.findDetailsById(id);
+    }
+
+    /**
+     * Loads the reservation with a row lock held until the surrounding transaction ends.
+     */
+    @Transactional
+    public Optional<Reservation> getReservationForUpdate(Long id) {
+        return reservationRepository.findByIdForUpdate(id);
+    }
+
     @Transactional
     public Reservation createReservation(User user, Vehicle vehicle, LocalDateTime startDate, LocalDateTime endDate) {
+        // The index may still hold a reservation deleted since, so only the query below decides
+        boolean knownConflict = conflictIndex.hasConflict(vehicle.getId(), startDate, endDate);
+
         // Check if vehicle is available during the specified time range
         List<Reservation> overlappingReservations = reservationRepository.findOverlappingReservations(
                 vehicle, startDate, endDate, Reservation.ReservationStatus.CANCELED);
         
         if (!overlappingReservations.isEmpty()) {
-            throw new IllegalStateException("Vehicle is not available during the specified time range");
+            throw new ReservationException(VEHICLE_UNAVAILABLE, vehicle.getId());
+        }
+        if (knownConflict) {
+            log.info("Conflict index held reservations of vehicle {} no longer in the database, evicting them",
+                    vehicle.getId());
+            conflictIndex.evict(vehicle.getId(), startDate, endDate);
         }
 
         // Calculate total cost
@@ -66,9 +140,24 @@ public class ReservationService {
         reservation.setStartDate(startDate);
         reservation.setEndDate(endDate);
         reservation.setTotalCost(totalCost);
+        reservation.setRevenueVehicleType(vehicle.getType());
         reservation.setStatus(Reservation.ReservationStatus.PENDING);
+        // The vehicle is held for payment only until then, see BookingHoldService
+        reservation.setHoldExpiresAt(LocalDateTime.now().plus(holdTtl));
         
-        return reservationRepository.save(reservation);
+        // Flush so a concurrent booking that won the race fails here rather than at commit
+        Reservation saved;
+        try {
+            saved = reservationRepository.save(reservation);
+            reservationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (isExclusionViolation(e)) {
+                throw new ReservationException(VEHICLE_UNAVAILABLE, vehicle.getId());
+            }
+            throw e;
+        }
+        recordChange(saved, null);
+        return saved;
     }
 
     @Transactional
@@ -76,8 +165,12 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
         
+        Reservation.ReservationStatus previousStatus = reservation.getStatus();
         reservation.setStatus(Reservation.ReservationStatus.CONFIRMED);
-        return reservationRepository.save(reservation);
+        reservation.setHoldExpiresAt(null);
+        Reservation saved = reservationRepository.save(reservation);
+        recordChange(reservation, previousStatus);
+        return saved;
     }
 
     @Transactional
@@ -85,8 +178,12 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
         
+        Reservation.ReservationStatus previousStatus = reservation.getStatus();
         reservation.setStatus(Reservation.ReservationStatus.CANCELED);
-        return reservationRepository.save(reservation);
+        reservation.setHoldExpiresAt(null);
+        Reservation saved = reservationRepository.save(reservation);
+        recordChange(reservation, previousStatus);
+        return saved;
     }
 
     @Transactional
@@ -94,8 +191,44 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
         
+        Reservation.ReservationStatus previousStatus = reservation.getStatus();
         reservation.setStatus(Reservation.ReservationStatus.COMPLETED);
-        return reservationRepository.save(reservation);
+        reservation.setHoldExpiresAt(null);
+        Reservation saved = reservationRepository.save(reservation);
+        recordChange(reservation, previousStatus);
+        return saved;
+    }
+
+    /**
+     * Gives PENDING reservations from before payment holds existed one regular hold period, counted
+     * on the same clock as the holds of new reservations. Returns how many got a hold.
+     */
+    @Transactional
+    public int holdUnheldReservations() {
+        return reservationRepository.holdUnheld(Reservation.ReservationStatus.PENDING,
+                LocalDateTime.now().plus(holdTtl));
+    }
+
+    /**
+     * Cancels the reservation if it is still PENDING and its payment hold ended at or before
+     * {@code now}. Returns whether it was canceled.
+     */
+    @Transactional
+    public boolean expireHold(Long reservationId, LocalDateTime now) {
+        Optional<Reservation> found = reservationRepository.findByIdForUpdate(reservationId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Reservation reservation = found.get();
+        if (reservation.getStatus() != Reservation.ReservationStatus.PENDING
+                || reservation.getHoldExpiresAt() == null || reservation.getHoldExpiresAt().isAfter(now)) {
+            return false;
+        }
+        reservation.setStatus(Reservation.ReservationStatus.CANCELED);
+        reservation.setHoldExpiresAt(null);
+        reservationRepository.save(reservation);
+        recordChange(reservation, Reservation.ReservationStatus.PENDING);
+        return true;
     }
 
     @Transactional
@@ -110,18 +243,35 @@ public class ReservationService {
         reservation.setRating(rating);
         reservation.setFeedback(feedback);
         
-        // Update vehicle rating
-        Vehicle vehicle = reservation.getVehicle();
-        int currentRatingCount = vehicle.getRatingCount() != null ? vehicle.getRatingCount() : 0;
-        double currentRating = vehicle.getRating() != null ? vehicle.getRating() : 0.0;
-        
-        // Calculate new average rating
-        double newRating = ((currentRating * currentRatingCount) + rating) / (currentRatingCount + 1);
-        
-        vehicle.setRatingCount(currentRatingCount + 1);
-        vehicle.setRating(newRating);
-        vehicleRepository.save(vehicle);
+        // Through the vehicle service, so the caches and change feed see the new rating
+        vehicleService.addRating(reservation.getVehicle(), rating);
         
         return reservationRepository.save(reservation);
     }
+
+    private static boolean isExclusionViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Update the revenue rollup in this transaction and notify listeners such as the availability
+    // calendar once the change is committed
+    private void recordChange(Reservation reservation, Reservation.ReservationStatus previousStatus) {
+        revenueRollup.recordChange(reservation, previousStatus);
+        ReservationChangedEvent event = ReservationChangedEvent.of(reservation, previousStatus);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventPublisher.publishEvent(event);
+                }
+            });
+        } else {
+            eventPublisher.publishEvent(event);
+        }
+    }
 }
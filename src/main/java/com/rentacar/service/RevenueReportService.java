@@ -0,0 +1,74 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.ReservationListItem;
+import com.rentacar.dto.RevenueReport;
+import com.rentacar.dto.RevenueReport.Totals;
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.RevenueBucket;
+import com.rentacar.repository.RevenueDailyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Revenue of the CONFIRMED and COMPLETED reservations starting in a period, each attributed to its
+ * start day. The report reads the {@code revenue_daily} rollup kept by {@link RevenueRollupService},
+ * at most one row per day, vehicle type and status whatever the number of reservations; the
+ * reservations themselves are only listed for a drill-down.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class RevenueReportService {
+
+    public static final Set<Reservation.ReservationStatus> EARNING_STATUSES =
+            Set.of(Reservation.ReservationStatus.CONFIRMED, Reservation.ReservationStatus.COMPLETED);
+
+    private final RevenueDailyRepository revenueDailyRepository;
+    private final ReservationRepository reservationRepository;
+
+    public RevenueReport getReport(LocalDate startDate, LocalDate endDate) {
+        List<RevenueBucket> buckets = revenueDailyRepository.findBuckets(EARNING_STATUSES, startDate, endDate);
+
+        Totals total = Totals.ZERO;
+        Map<Vehicle.VehicleType, Totals> byType = new EnumMap<>(Vehicle.VehicleType.class);
+        Map<Reservation.ReservationStatus, Totals> byStatus = new EnumMap<>(Reservation.ReservationStatus.class);
+        SortedMap<LocalDate, Totals> byDay = new TreeMap<>();
+        for (RevenueBucket bucket : buckets) {
+            Totals totals = new Totals(bucket.getReservations(),
+                    bucket.getRevenue() != null ? bucket.getRevenue() : BigDecimal.ZERO);
+            total = total.plus(totals);
+            if (bucket.getVehicleType() != null) {
+                byType.merge(bucket.getVehicleType(), totals, Totals::plus);
+            }
+            byStatus.merge(bucket.getStatus(), totals, Totals::plus);
+            byDay.merge(bucket.getDay(), totals, Totals::plus);
+        }
+        return new RevenueReport(startDate, endDate, total, byType, byStatus, byDay);
+    }
+
+    /**
+     * The reservations behind one group of the report; a null type or status means all of them.
+     */
+    public List<ReservationListItem> getReservations(LocalDate startDate, LocalDate endDate,
+                                                     Vehicle.VehicleType type, Reservation.ReservationStatus status) {
+        if (status != null && !EARNING_STATUSES.contains(status)) {
+            return List.of();
+        }
+        Set<Reservation.ReservationStatus> statuses = status != null ? Set.of(status) : EARNING_STATUSES;
+        return reservationRepository.findListItemsStartingIn(statuses,
+                startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX), type);
+    }
+}
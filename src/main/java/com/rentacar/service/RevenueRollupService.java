@@ -0,0 +1,118 @@
+package com.rentacar.service;
+
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.RevenueDailyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Keeps {@code revenue_daily}, the reservation count and total cost per start day, vehicle type
+ * and status, which the revenue report reads instead of the reservation table.
+ * <p>
+ * {@link ReservationService} applies every status change here in its own transaction, so a
+ * reservation moves between rows exactly when its status commits. A reservation stays under the
+ * vehicle type stored on it when it was booked, so changing a vehicle's type later does not move
+ * it. Deleting a vehicle or user deletes its reservations, which are taken out of their rows in the
+ * same transaction. The rebuild recomputes the table from the reservations, for backfills and to
+ * correct rows written outside the services.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RevenueRollupService {
+
+    private final RevenueDailyRepository revenueDailyRepository;
+    private final ReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Moves the reservation from the row of {@code previousStatus} to the row of its current status;
+     * a null {@code previousStatus} means it is new.
+     */
+    @Transactional
+    public void recordChange(Reservation reservation, Reservation.ReservationStatus previousStatus) {
+        Reservation.ReservationStatus status = reservation.getStatus();
+        if (status == previousStatus) {
+            return;
+        }
+        LocalDate day = reservation.getStartDate().toLocalDate();
+        String type = bucketType(reservation).name();
+        BigDecimal cost = reservation.getTotalCost() != null ? reservation.getTotalCost() : BigDecimal.ZERO;
+        if (previousStatus == null) {
+            revenueDailyRepository.add(day, type, status.name(), 1, cost);
+            return;
+        }
+        // Rows are locked in status order, so two changes of the same day and type cannot deadlock
+        if (previousStatus.ordinal() < status.ordinal()) {
+            revenueDailyRepository.add(day, type, previousStatus.name(), -1, cost.negate());
+            revenueDailyRepository.add(day, type, status.name(), 1, cost);
+        } else {
+            revenueDailyRepository.add(day, type, status.name(), 1, cost);
+            revenueDailyRepository.add(day, type, previousStatus.name(), -1, cost.negate());
+        }
+    }
+
+    /**
+     * Takes the reservations of the vehicle out of the rollup; call in the transaction deleting it.
+     */
+    @Transactional
+    public void removeReservationsOfVehicle(Long vehicleId) {
+        revenueDailyRepository.subtractReservationsOfVehicle(vehicleId);
+    }
+
+    /**
+     * Takes the reservations of the user out of the rollup; call in the transaction deleting it.
+     */
+    @Transactional
+    public void removeReservationsOfUser(Long userId) {
+        revenueDailyRepository.subtractReservationsOfUser(userId);
+    }
+
+    // Reservations booked before the type was stored take the vehicle's current one from now on
+    private static Vehicle.VehicleType bucketType(Reservation reservation) {
+        if (reservation.getRevenueVehicleType() == null) {
+            reservation.setRevenueVehicleType(reservation.getVehicle().getType());
+        }
+        return reservation.getRevenueVehicleType();
+    }
+
+    /**
+     * Recomputes the whole table from the reservations. Status changes that commit meanwhile wait
+     * for the table lock and are then applied to the new rows.
+     */
+    @Scheduled(cron = "${rentacar.revenue.rollup-rebuild-cron:0 0 4 * * SUN}")
+    public int rebuild() {
+        // Programmatic, so the startup check below gets a transaction without calling through the proxy
+        Integer rows = transactionTemplate.execute(status -> {
+            revenueDailyRepository.lockTable();
+            revenueDailyRepository.fillMissingVehicleTypes();
+            revenueDailyRepository.deleteAllRows();
+            return revenueDailyRepository.insertFromReservations();
+        });
+        log.info("Rebuilt the daily revenue rollup with {} rows", rows);
+        return rows != null ? rows : 0;
+    }
+
+    // A table created by the schema update instead of the migration starts out empty
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        try {
+            if (revenueDailyRepository.count() == 0 && reservationRepository.count() > 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("Could not fill the daily revenue rollup, the revenue report may be incomplete", e);
+        }
+    }
+}
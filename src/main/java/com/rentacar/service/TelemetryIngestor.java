@@ -0,0 +1,124 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.LocationPing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers vehicle position reports and writes them in batches. Reports are coalesced per vehicle
+ * so only the newest position since the last flush is written, however often a vehicle reports;
+ * a flush runs every {@code rentacar.telemetry.flush-interval-ms} as one batch UPDATE. A report
+ * that arrives after a newer one of the same vehicle was already flushed is skipped by that UPDATE,
+ * so reports dated further ahead than {@code rentacar.telemetry.max-clock-skew} are rejected: one
+ * would hold back every real report of its vehicle until that time.
+ */
+@Service
+@Slf4j
+public class TelemetryIngestor {
+
+    private final VehicleService vehicleService;
+
+    // Bounds the buffer when reports arrive for unknown vehicle ids faster than flushes drop them
+    @Value("${rentacar.telemetry.max-pending:100000}")
+    private int maxPending = 100_000;
+
+    @Value("${rentacar.telemetry.max-clock-skew:30s}")
+    private Duration maxClockSkew = Duration.ofSeconds(30);
+
+    private final Map<Long, LocationPing> pending = new ConcurrentHashMap<>();
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter rowsFlushed;
+    private final Counter failedFlushes;
+    private final Timer flushTimer;
+
+    public TelemetryIngestor(VehicleService vehicleService, MeterRegistry registry) {
+        this.vehicleService = vehicleService;
+        this.accepted = Counter.builder("rentacar.telemetry.pings.accepted")
+                .description("Position reports accepted for writing").register(registry);
+        this.rejected = Counter.builder("rentacar.telemetry.pings.rejected")
+                .description("Position reports dropped as invalid or because the buffer was full").register(registry);
+        this.rowsFlushed = Counter.builder("rentacar.telemetry.rows.flushed")
+                .description("Vehicle rows updated by telemetry flushes").register(registry);
+        this.failedFlushes = Counter.builder("rentacar.telemetry.flush.failures").register(registry);
+        this.flushTimer = Timer.builder("rentacar.telemetry.flush").register(registry);
+        Gauge.builder("rentacar.telemetry.pending", pending, Map::size)
+                .description("Vehicles with a position waiting for the next flush").register(registry);
+    }
+
+    /**
+     * Buffers the reports and returns how many were accepted. Of several reports for one vehicle
+     * the one with the latest timestamp wins; reports without one are stamped with the current time.
+     */
+    public int accept(List<LocationPing> pings) {
+        Instant now = Instant.now();
+        Instant latestAccepted = now.plus(maxClockSkew);
+        int count = 0;
+        for (LocationPing ping : pings) {
+            if (ping == null || !ping.isValid()
+                    || (ping.timestamp() != null && ping.timestamp().isAfter(latestAccepted))
+                    || (pending.size() >= maxPending && !pending.containsKey(ping.vehicleId()))) {
+                rejected.increment();
+                continue;
+            }
+            LocationPing stamped = ping.timestamp() != null ? ping : ping.withTimestamp(now);
+            pending.merge(stamped.vehicleId(), stamped, TelemetryIngestor::newer);
+            count++;
+        }
+        accepted.increment(count);
+        return count;
+    }
+
+    @Scheduled(fixedDelayString = "${rentacar.telemetry.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Entry-wise removal: a report arriving meanwhile either makes this batch or stays for the next
+        List<LocationPing> batch = new ArrayList<>(pending.size());
+        for (Long vehicleId : pending.keySet()) {
+            LocationPing ping = pending.remove(vehicleId);
+            if (ping != null) {
+                batch.add(ping);
+            }
+        }
+        try {
+            int rows = flushTimer.record(() -> vehicleService.applyLocationBatch(batch));
+            rowsFlushed.increment(rows);
+            log.debug("Flushed {} vehicle positions, {} rows updated", batch.size(), rows);
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.error("Failed to flush {} vehicle positions, retrying with the next flush", batch.size(), e);
+            // Put them back unless a newer report came in meanwhile
+            batch.forEach(ping -> pending.merge(ping.vehicleId(), ping, TelemetryIngestor::newer));
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private static LocationPing newer(LocationPing current, LocationPing candidate) {
+        return candidate.timestamp().isBefore(current.timestamp()) ? current : candidate;
+    }
+}
@@ -1,5 +1,7 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.UserListItem;
 import com.rentacar.model.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,6 +24,19 @@ public interface UserService extends UserDetailsService {
     
     @Transactional(readOnly = true)
     List<User> getAllUsers();
+
+    /**
+     * Up to {@code size} users in id order following {@code cursor}, or from the start when it is null.
+     */
+    @Transactional(readOnly = true)
+    KeysetPage<User> getUserPage(Long cursor, int size);
+
+    /**
+     * The same page as {@link #getUserPage} as list rows, with reservation counts read in one
+     * aggregate query instead of loading every user's reservations.
+     */
+    @Transactional(readOnly = true)
+    KeysetPage<UserListItem> getUserListPage(Long cursor, int size);
     
     User registerUser(User user);
     
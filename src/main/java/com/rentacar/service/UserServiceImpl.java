@@ -1,21 +1,38 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.UserListItem;
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.ReservationsDeletedEvent;
+import com.rentacar.event.UserChangedEvent;
+import com.rentacar.model.Reservation;
 import com.rentacar.model.User;
+import com.rentacar.repository.BookedInterval;
+import com.rentacar.repository.ReservationRepository;
 import com.rentacar.repository.UserRepository;
+import com.rentacar.repository.UserReservationCount;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -24,8 +41,17 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ReservationRepository reservationRepository;
+    
+    @Autowired
+    private RevenueRollupService revenueRollup;
+    
     @Autowired
     private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -83,6 +109,26 @@ public class UserServiceImpl implements UserService {
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
+
+    @Override
+    public KeysetPage<User> getUserPage(Long cursor, int size) {
+        List<User> rows = userRepository.findByIdGreaterThanOrderByIdAsc(
+                cursor != null ? cursor : 0L, PageRequest.ofSize(size + 1));
+        return KeysetPage.of(rows, size, User::getId);
+    }
+
+    @Override
+    public KeysetPage<UserListItem> getUserListPage(Long cursor, int size) {
+        KeysetPage<User> page = getUserPage(cursor, size);
+        if (page.items().isEmpty()) {
+            return page.map(user -> UserListItem.of(user, null));
+        }
+        Map<Long, UserReservationCount> counts = new HashMap<>();
+        reservationRepository.countByUserIds(page.items().stream().map(User::getId).toList(),
+                        Reservation.ReservationStatus.CONFIRMED)
+                .forEach(count -> counts.put(count.getUserId(), count));
+        return page.map(user -> UserListItem.of(user, counts.get(user.getId())));
+    }
     
     @Override
     public User registerUser(User user) {
@@ -93,7 +139,9 @@ public class UserServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRole(User.Role.ROLE_USER);
         user.setEnabled(true);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        publishChange(saved.getId(), ChangeKind.CREATED);
+        return saved;
     }
     
     @Override
@@ -102,8 +150,18 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
+    @Transactional
     public void deleteUser(Long id) {
+        // Its reservations are deleted with it
+        List<BookedInterval> reservations = reservationRepository.findIntervalsByUserId(id);
+        revenueRollup.removeReservationsOfUser(id);
         userRepository.deleteById(id);
+        publishChange(id, ChangeKind.DELETED);
+        if (!reservations.isEmpty()) {
+            publishAfterCommit(new ReservationsDeletedEvent(
+                    reservations.stream().map(BookedInterval::getReservationId).toList(),
+                    reservations.stream().map(BookedInterval::getVehicleId).collect(Collectors.toSet())));
+        }
     }
     
     @Override
@@ -220,4 +278,22 @@ public class UserServiceImpl implements UserService {
             }
         }
     }
+
+    // Notify listeners such as the dashboard statistics once the change is committed
+    private void publishChange(long userId, ChangeKind kind) {
+        publishAfterCommit(new UserChangedEvent(userId, kind));
+    }
+
+    private void publishAfterCommit(Object event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventPublisher.publishEvent(event);
+                }
+            });
+        } else {
+            eventPublisher.publishEvent(event);
+        }
+    }
 }
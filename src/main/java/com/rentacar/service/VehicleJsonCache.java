@@ -0,0 +1,149 @@
+package com.rentacar.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentacar.dto.VehicleView;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.VehicleRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-encoded JSON of each vehicle's {@link VehicleView}, so API responses are assembled from
+ * cached byte slices instead of serializing every vehicle on every request.
+ * <p>
+ * Every invalidation takes a stamp from a global clock. Callers take a stamp before reading
+ * vehicles from the database and an entry is only cached when no invalidation happened after
+ * that read started, so a slow reader can never cache bytes older than a committed change. A
+ * deleted vehicle's stamp is dropped rather than kept forever; instead no read that started before
+ * the latest deletion caches anything, so the deleted vehicle cannot come back through one.
+ */
+@Component
+public class VehicleJsonCache {
+
+    private final VehicleRepository vehicleRepository;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastDeletion = new AtomicLong();
+
+    public VehicleJsonCache(VehicleRepository vehicleRepository, ObjectMapper objectMapper) {
+        this.vehicleRepository = vehicleRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Current clock value; take it before reading the vehicles later passed to {@link #getJson(Vehicle, long)}.
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * JSON of a vehicle that was read from the database after {@code readStamp} was taken.
+     */
+    public byte[] getJson(Vehicle vehicle, long readStamp) {
+        byte[] cached = cached(vehicle.getId());
+        return cached != null ? cached : encode(vehicle, readStamp);
+    }
+
+    /**
+     * JSON of the vehicles in the order of {@code ids}; only the ids without a current entry are
+     * loaded from the database. The entry is null for a vehicle that no longer exists.
+     */
+    public List<byte[]> getJson(List<Long> ids) {
+        Map<Long, byte[]> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            byte[] cached = cached(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long readStamp = stamp();
+            for (Vehicle vehicle : vehicleRepository.findAllById(missing)) {
+                found.put(vehicle.getId(), encode(vehicle, readStamp));
+            }
+        }
+
+        List<byte[]> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(found.get(id));
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (event.isDeleted()) {
+            forget(event.vehicleId());
+        } else {
+            invalidate(event.vehicleId());
+        }
+    }
+
+    public void invalidate(long vehicleId) {
+        invalidatedAt.put(vehicleId, clock.incrementAndGet());
+        entries.remove(vehicleId);
+    }
+
+    /**
+     * Drops everything kept for a vehicle that no longer exists.
+     */
+    public void forget(long vehicleId) {
+        lastDeletion.accumulateAndGet(clock.incrementAndGet(), Math::max);
+        entries.remove(vehicleId);
+        invalidatedAt.remove(vehicleId);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int trackedVehicles() {
+        return invalidatedAt.size();
+    }
+
+    private byte[] cached(long id) {
+        Entry entry = entries.get(id);
+        return entry != null && entry.version() == invalidatedAt.getOrDefault(id, 0L) ? entry.json() : null;
+    }
+
+    private byte[] encode(Vehicle vehicle, long readStamp) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(VehicleView.of(vehicle));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long id = vehicle.getId();
+        long version = invalidatedAt.getOrDefault(id, 0L);
+        if (version <= readStamp && lastDeletion.get() <= readStamp) {
+            Entry entry = new Entry(version, json);
+            entries.put(id, entry);
+            // An invalidation or deletion may have slipped in between the check and the put
+            if (invalidatedAt.getOrDefault(id, 0L) != version || lastDeletion.get() > readStamp) {
+                entries.remove(id, entry);
+            }
+        }
+        return json;
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.dto.VehicleSearchCriteria;
+import com.rentacar.geo.Neighbor;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.VehicleRepository;
+import com.rentacar.repository.VehicleSpecifications;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Combined vehicle search: every filter of {@link VehicleSearchCriteria} applies at once and one
+ * result set comes back.
+ * <p>
+ * With a location the spatial lookup runs first: it only visits the grid cells around the point and
+ * evaluates the attribute filters on the in-memory snapshots. Usually it drives, so the database
+ * only sees the ids that survived and checks availability and reservation overlap for them. When
+ * those ids need more than one query, the rows matching the database predicates are counted, and
+ * if there are fewer of them the database drives instead and its rows are joined with the spatial
+ * candidates in memory. Without a location a single query carrying only the supplied predicates is
+ * sent, so the database picks the most selective index to drive it.
+ * <p>
+ * Inside the horizon of the {@link AvailabilityCalendar} the time range is answered from its
+ * bitmaps and the reservation subquery is left out of the SQL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VehicleSearchService {
+
+    // Keeps IN lists well below the driver's bind parameter limit
+    static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final VehicleRepository vehicleRepository;
+    private final VehicleService vehicleService;
+    private final AvailabilityCalendar availabilityCalendar;
+
+    /**
+     * Available vehicles matching all criteria. Location searches come back nearest first with
+     * distances, the others in id order.
+     */
+    public List<VehicleDTO> search(VehicleSearchCriteria criteria) {
+        Set<Long> booked = criteria.hasTimeRange()
+                ? availabilityCalendar.findBookedVehicleIds(criteria.startDate(), criteria.endDate())
+                : null;
+        // Without calendar coverage the database checks the time range itself
+        Specification<Vehicle> matching = VehicleSpecifications.matching(
+                booked != null ? criteria.withoutTimeRange() : criteria);
+        Predicate<Long> free = booked != null ? id -> !booked.contains(id) : id -> true;
+
+        if (!criteria.hasLocation()) {
+            return vehicleRepository.findAll(matching, Sort.by("id")).stream()
+                    .filter(vehicle -> free.test(vehicle.getId()))
+                    .map(VehicleDTO::new)
+                    .toList();
+        }
+
+        List<Neighbor> candidates = vehicleService.findWithinRadius(criteria.latitude(), criteria.longitude(),
+                        criteria.radiusOrDefault(), snapshotFilter(criteria)).stream()
+                .filter(neighbor -> free.test(neighbor.id()))
+                .toList();
+        log.debug("Spatial search driver left {} candidates", candidates.size());
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Vehicle> matches = new HashMap<>();
+        // One id batch is always cheap; beyond that the count decides which side drives
+        if (candidates.size() > MAX_IDS_PER_QUERY && vehicleRepository.count(matching) < candidates.size()) {
+            log.debug("Database predicates drive, they match fewer rows than the spatial candidates");
+            vehicleRepository.findAll(matching).forEach(vehicle -> matches.put(vehicle.getId(), vehicle));
+        } else {
+            for (int from = 0; from < candidates.size(); from += MAX_IDS_PER_QUERY) {
+                List<Long> ids = candidates.subList(from, Math.min(candidates.size(), from + MAX_IDS_PER_QUERY))
+                        .stream()
+                        .map(Neighbor::id)
+                        .toList();
+                vehicleRepository.findAll(matching.and(VehicleSpecifications.idIn(ids)))
+                        .forEach(vehicle -> matches.put(vehicle.getId(), vehicle));
+            }
+        }
+
+        // Rows outside the candidates are dropped here, candidates are already nearest first
+        List<VehicleDTO> result = new ArrayList<>(matches.size());
+        for (Neighbor candidate : candidates) {
+            Vehicle vehicle = matches.get(candidate.id());
+            if (vehicle != null) {
+                VehicleDTO dto = new VehicleDTO(vehicle);
+                dto.setDistance(candidate.distanceKm());
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The attribute filters of the criteria as a predicate over index snapshots. Unset filters
+     * accept everything; a vehicle without a rate fails any price bound.
+     */
+    public static Predicate<VehicleSnapshot> snapshotFilter(VehicleSearchCriteria criteria) {
+        Predicate<VehicleSnapshot> filter = VehicleSnapshot::available;
+        if (criteria.type() != null) {
+            filter = filter.and(snapshot -> snapshot.type() == criteria.type());
+        }
+        if (criteria.minPrice() != null) {
+            double minPrice = criteria.minPrice().doubleValue();
+            filter = filter.and(snapshot -> snapshot.dailyRate() >= minPrice);
+        }
+        if (criteria.maxPrice() != null) {
+            double maxPrice = criteria.maxPrice().doubleValue();
+            filter = filter.and(snapshot -> snapshot.dailyRate() <= maxPrice);
+        }
+        if (criteria.minSeats() != null) {
+            int minSeats = criteria.minSeats();
+            filter = filter.and(snapshot -> snapshot.seats() >= minSeats);
+        }
+        if (criteria.fuelType() != null) {
+            filter = filter.and(snapshot -> criteria.fuelType().equalsIgnoreCase(snapshot.fuelType()));
+        }
+        return filter;
+    }
+}
@@ -1,39 +1,112 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.LocationPing;
+import com.rentacar.dto.VehicleClusterResponse;
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.GeoUtils;
+import com.rentacar.geo.Neighbor;
+import com.rentacar.geo.SpatialQueryMode;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.geo.VehicleSpatialIndex;
 import com.rentacar.model.Reservation;
 import com.rentacar.model.Vehicle;
 import com.rentacar.repository.VehicleRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class VehicleService {
 
     private final VehicleRepository vehicleRepository;
     private final GeometryFactory geometryFactory;
+    private final VehicleSpatialIndex spatialIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RevenueRollupService revenueRollup;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // MEMORY answers spatial queries from the grid index, POSTGIS pushes them into the database
+    @Value("${rentacar.spatial.mode:MEMORY}")
+    private SpatialQueryMode spatialMode = SpatialQueryMode.MEMORY;
+
+    // From this map zoom on, individual vehicles are returned instead of clusters
+    @Value("${rentacar.map.cluster-max-zoom:15}")
+    private int clusterMaxZoom = 15;
+
+    // Upper bound for individual vehicles in one map viewport; larger viewports stay clustered
+    private static final int MAX_MAP_VEHICLES = 1000;
 
     @Autowired
-    public VehicleService(VehicleRepository vehicleRepository, GeometryFactory geometryFactory) {
+    public VehicleService(VehicleRepository vehicleRepository, GeometryFactory geometryFactory,
+                          VehicleSpatialIndex spatialIndex, ApplicationEventPublisher eventPublisher,
+                          RevenueRollupService revenueRollup) {
         this.vehicleRepository = vehicleRepository;
         this.geometryFactory = geometryFactory;
+        this.spatialIndex = spatialIndex;
+        this.eventPublisher = eventPublisher;
+        this.revenueRollup = revenueRollup;
     }
     
     public List<Vehicle> getAllVehicles() {
         return vehicleRepository.findAll();
     }
+
+    /**
+     * Up to {@code size} vehicles in id order following {@code cursor}, or from the start when it is null.
+     */
+    public KeysetPage<Vehicle> getVehiclePage(Long cursor, int size) {
+        List<Vehicle> rows = vehicleRepository.findByIdGreaterThanOrderByIdAsc(
+                cursor != null ? cursor : 0L, PageRequest.ofSize(size + 1));
+        return KeysetPage.of(rows, size, Vehicle::getId);
+    }
     
     public List<Vehicle> getAllAvailableVehicles() {
         return vehicleRepository.findByAvailableTrue();
     }
     
+    /**
+     * Feeds every available vehicle with coordinates to {@code consumer} from a forward-only cursor.
+     * Rows are detached once consumed, so memory use does not grow with the fleet.
+     */
+    @Transactional(readOnly = true)
+    public void forEachAvailableVehicleWithLocation(Consumer<Vehicle> consumer) {
+        try (Stream<Vehicle> vehicles = vehicleRepository.streamAvailableWithLocation()) {
+            vehicles.forEach(vehicle -> {
+                consumer.accept(vehicle);
+                entityManager.detach(vehicle);
+            });
+        }
+    }
+    
     public Optional<Vehicle> getVehicleById(Long id) {
         return vehicleRepository.findById(id);
     }
@@ -49,36 +122,188 @@ public class VehicleService {
     }
     
     public List<Vehicle> getVehiclesNearLocation(double latitude, double longitude, double radius) {
-        // Use the manual distance calculation approach
-        return vehicleRepository.findAll().stream()
-                .filter(vehicle -> {
-                    if (vehicle.getLocation() == null) return false;
-                    
-                    double distance = calculateDistance(
-                            latitude, longitude,
-                            vehicle.getLatitude(), vehicle.getLongitude());
-                    
-                    return distance <= radius;
-                })
-                .toList();
+        if (spatialMode == SpatialQueryMode.POSTGIS) {
+            return vehicleRepository.findWithinDistance(latitude, longitude, radius * 1000);
+        }
+        
+        // Only the grid cells around the point are scanned, then matches are loaded by primary key
+        spatialIndex.loadIfNeeded(vehicleRepository::findAll);
+        List<Long> ids = spatialIndex.findWithinRadius(latitude, longitude, radius);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return vehicleRepository.findAllById(ids);
     }
     
-    // Helper method to calculate distance between two coordinates in km (using Haversine formula)
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        if (lat2 == 0 && lon2 == 0) return Double.MAX_VALUE;
+    public List<Vehicle> getNearestVehicles(double latitude, double longitude, int limit) {
+        if (spatialMode == SpatialQueryMode.POSTGIS) {
+            return vehicleRepository.findNearest(latitude, longitude, limit);
+        }
         
-        final int R = 6371; // Earth's radius in km
+        spatialIndex.loadIfNeeded(vehicleRepository::findAll);
+        List<Neighbor> nearest = spatialIndex.findNearest(latitude, longitude, limit, snapshot -> true);
+        return loadInOrder(nearest.stream().map(Neighbor::id).toList());
+    }
+    
+    /**
+     * Ids and distances (km) of the {@code limit} available vehicles closest to the point, nearest first.
+     */
+    public List<Neighbor> findNearestAvailable(double latitude, double longitude, int limit,
+                                               Vehicle.VehicleType type) {
+        if (spatialMode == SpatialQueryMode.POSTGIS) {
+            List<Vehicle> vehicles = vehicleRepository.findNearestAvailable(
+                    latitude, longitude, type != null ? type.name() : null, limit);
+            return toNeighbors(vehicles, latitude, longitude);
+        }
         
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+        spatialIndex.loadIfNeeded(vehicleRepository::findAll);
+        Predicate<VehicleSnapshot> filter = snapshot -> snapshot.available()
+                && (type == null || snapshot.type() == type);
+        return spatialIndex.findNearest(latitude, longitude, limit, filter);
+    }
+    
+    /**
+     * Ids and distances (km) of all vehicles within {@code radius} km of the point, optionally of
+     * one type, nearest first.
+     */
+    public List<Neighbor> findWithinRadius(double latitude, double longitude, double radius,
+                                           Vehicle.VehicleType type) {
+        return findWithinRadius(latitude, longitude, radius, snapshot -> type == null || snapshot.type() == type);
+    }
+    
+    /**
+     * Ids and distances (km) of all vehicles within {@code radius} km of the point accepted by
+     * {@code filter}, nearest first.
+     */
+    public List<Neighbor> findWithinRadius(double latitude, double longitude, double radius,
+                                           Predicate<VehicleSnapshot> filter) {
+        List<Neighbor> neighbors;
+        if (spatialMode == SpatialQueryMode.POSTGIS) {
+            List<Vehicle> vehicles = vehicleRepository.findWithinDistance(latitude, longitude, radius * 1000).stream()
+                    .filter(v -> {
+                        VehicleSnapshot snapshot = VehicleSnapshot.of(v);
+                        return snapshot != null && filter.test(snapshot);
+                    })
+                    .toList();
+            neighbors = new ArrayList<>(toNeighbors(vehicles, latitude, longitude));
+        } else {
+            spatialIndex.loadIfNeeded(vehicleRepository::findAll);
+            neighbors = new ArrayList<>(spatialIndex.findWithinRadius(latitude, longitude, radius, filter));
+        }
+        neighbors.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return neighbors;
+    }
+    
+    /**
+     * The {@code limit} available vehicles closest to the point, nearest first, each carrying its
+     * distance in km.
+     */
+    public List<VehicleDTO> getNearestAvailableVehicles(double latitude, double longitude, int limit,
+                                                        Vehicle.VehicleType type) {
+        return toDTOs(findNearestAvailable(latitude, longitude, limit, type));
+    }
+    
+    /**
+     * All vehicles within {@code radius} km of the point, optionally of one type, nearest first,
+     * each carrying its distance in km.
+     */
+    public List<VehicleDTO> getVehiclesNearLocationWithDistance(double latitude, double longitude, double radius,
+                                                                Vehicle.VehicleType type) {
+        return toDTOs(findWithinRadius(latitude, longitude, radius, type));
+    }
+    
+    /**
+     * Available vehicles inside the map viewport: pre-aggregated clusters below
+     * {@code rentacar.map.cluster-max-zoom}, individual vehicles from there on.
+     */
+    public VehicleClusterResponse getVehicleClusters(double south, double west, double north, double east, int zoom) {
+        spatialIndex.loadIfNeeded(vehicleRepository::findAll);
         
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-                
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        if (zoom >= clusterMaxZoom) {
+            List<Long> ids = spatialIndex.findInBoundingBox(south, west, north, east, VehicleSnapshot::available)
+                    .stream()
+                    .map(VehicleSnapshot::id)
+                    .toList();
+            if (ids.size() <= MAX_MAP_VEHICLES) {
+                List<VehicleDTO> vehicles = loadInOrder(ids).stream().map(VehicleDTO::new).toList();
+                return new VehicleClusterResponse(zoom, false, List.of(), vehicles);
+            }
+        }
         
-        return R * c;
+        int clusterZoom = Math.min(zoom, VehicleSpatialIndex.MAX_CLUSTER_ZOOM);
+        return new VehicleClusterResponse(zoom, true,
+                spatialIndex.findClusters(south, west, north, east, clusterZoom), List.of());
+    }
+    
+    /**
+     * Positions of the available vehicles inside the bounding box, straight from the spatial index.
+     */
+    public List<VehicleSnapshot> getAvailableVehicleSnapshots(double south, double west, double north, double east) {
+        spatialIndex.loadIfNeeded(vehicleRepository::findAll);
+        return spatialIndex.findInBoundingBox(south, west, north, east, VehicleSnapshot::available);
+    }
+    
+    // Distances come from the index, so each one is computed exactly once
+    private List<VehicleDTO> toDTOs(List<Neighbor> neighbors) {
+        List<Vehicle> vehicles = loadInOrder(neighbors.stream().map(Neighbor::id).toList());
+        Map<Long, Double> distances = neighbors.stream()
+                .collect(Collectors.toMap(Neighbor::id, Neighbor::distanceKm));
+        return vehicles.stream()
+                .map(vehicle -> {
+                    VehicleDTO dto = new VehicleDTO(vehicle);
+                    dto.setDistance(distances.get(vehicle.getId()));
+                    return dto;
+                })
+                .toList();
+    }
+    
+    // Vehicles without coordinates cannot come back from a spatial query, the guard is defensive
+    private List<Neighbor> toNeighbors(List<Vehicle> vehicles, double latitude, double longitude) {
+        return vehicles.stream()
+                .filter(vehicle -> vehicle.getLatitude() != null && vehicle.getLongitude() != null)
+                .map(vehicle -> new Neighbor(vehicle.getId(), GeoUtils.haversineKm(
+                        latitude, longitude, vehicle.getLatitude(), vehicle.getLongitude())))
+                .toList();
+    }
+    
+    // findAllById gives no ordering guarantee, so restore the order of the ids
+    private List<Vehicle> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Vehicle> byId = vehicleRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    // Update the index and notify listeners once the change is committed
+    private void publishChange(long vehicleId, VehicleSnapshot previous, Vehicle saved, ChangeKind kind) {
+        afterCommit(() -> {
+            if (saved != null) {
+                spatialIndex.put(saved);
+            } else {
+                spatialIndex.remove(vehicleId);
+            }
+            eventPublisher.publishEvent(new VehicleChangedEvent(vehicleId, previous,
+                    saved != null ? VehicleSnapshot.of(saved) : null, kind));
+        });
+    }
+
+    // Apply in-memory index changes only once the database change is committed
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
     
     @Transactional
@@ -90,7 +315,9 @@ public class VehicleService {
             vehicle.setLocation(location);
         }
         
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        publishChange(saved.getId(), null, saved, ChangeKind.CREATED);
+        return saved;
     }
     
     @Transactional
@@ -98,6 +325,8 @@ public class VehicleService {
         // Fetch existing vehicle to preserve non-form fields if needed
         Vehicle existingVehicle = vehicleRepository.findById(vehicle.getId())
             .orElseThrow(() -> new IllegalArgumentException("Vehicle not found"));
+        // Taken before save, which merges the form values into the managed entity
+        VehicleSnapshot previous = VehicleSnapshot.of(existingVehicle);
         
         // Update the point geometry based on lat/long
         if (vehicle.getLatitude() != null && vehicle.getLongitude() != null) {
@@ -114,18 +343,25 @@ public class VehicleService {
             vehicle.setImageUrl(existingVehicle.getImageUrl());
         }
         
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        publishChange(saved.getId(), previous, saved, ChangeKind.UPDATED);
+        return saved;
     }
     
     @Transactional
     public void deleteVehicle(Long id) {
+        VehicleSnapshot previous = vehicleRepository.findById(id).map(VehicleSnapshot::of).orElse(null);
+        // Its reservations are deleted with it
+        revenueRollup.removeReservationsOfVehicle(id);
         vehicleRepository.deleteById(id);
+        publishChange(id, previous, null, ChangeKind.DELETED);
     }
     
     @Transactional
     public Vehicle updateVehicleLocation(Long vehicleId, Double latitude, Double longitude) {
         Vehicle vehicle = vehicleRepository.findById(vehicleId)
                 .orElseThrow(() -> new IllegalArgumentException("Vehicle not found with id: " + vehicleId));
+        VehicleSnapshot previous = VehicleSnapshot.of(vehicle);
         
         // Update coordinates
         vehicle.setLatitude(latitude);
@@ -135,6 +371,83 @@ public class VehicleService {
         Point location = geometryFactory.createPoint(new Coordinate(longitude, latitude));
         vehicle.setLocation(location);
         
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        // Telemetry reports taken before this move must not undo it
+        vehicleRepository.markPositionAt(vehicleId, Instant.now());
+        publishChange(vehicleId, previous, saved, ChangeKind.UPDATED);
+        return saved;
+    }
+
+    @Transactional
+    public Vehicle addRating(Vehicle vehicle, int rating) {
+        VehicleSnapshot previous = VehicleSnapshot.of(vehicle);
+        int currentRatingCount = vehicle.getRatingCount() != null ? vehicle.getRatingCount() : 0;
+        double currentRating = vehicle.getRating() != null ? vehicle.getRating() : 0.0;
+        
+        // Calculate new average rating
+        double newRating = ((currentRating * currentRatingCount) + rating) / (currentRatingCount + 1);
+        
+        vehicle.setRatingCount(currentRatingCount + 1);
+        vehicle.setRating(newRating);
+        
+        Vehicle saved = vehicleRepository.save(vehicle);
+        publishChange(saved.getId(), previous, saved, ChangeKind.UPDATED);
+        return saved;
+    }
+
+    /**
+     * Writes the positions of many vehicles with one batch UPDATE instead of loading and saving each
+     * entity. Index entries are moved from their snapshots; only vehicles not in the index yet are
+     * read back. Pings for vehicles that no longer exist, or older than the vehicle's last written
+     * position, are ignored. Returns the rows updated.
+     */
+    @Transactional
+    public int applyLocationBatch(List<LocationPing> pings) {
+        if (pings.isEmpty()) {
+            return 0;
+        }
+        // A fixed id order keeps row locks from concurrent batches in the same order
+        List<LocationPing> ordered = pings.stream()
+                .sorted(Comparator.comparing(LocationPing::vehicleId))
+                .toList();
+        int[] counts = vehicleRepository.updateLocations(ordered);
+
+        List<Move> moves = new ArrayList<>(ordered.size());
+        List<Long> notIndexed = new ArrayList<>();
+        int updated = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            // SUCCESS_NO_INFO (-2) still means the row was written
+            if (counts[i] == 0) {
+                continue;
+            }
+            updated++;
+            LocationPing ping = ordered.get(i);
+            VehicleSnapshot previous = spatialIndex.get(ping.vehicleId());
+            if (previous != null) {
+                moves.add(new Move(previous, previous.withPosition(ping.latitude(), ping.longitude())));
+            } else {
+                notIndexed.add(ping.vehicleId());
+            }
+        }
+        if (!notIndexed.isEmpty()) {
+            // Nothing of these vehicles is in the persistence context, so this reads the new positions
+            for (Vehicle vehicle : vehicleRepository.findAllById(notIndexed)) {
+                VehicleSnapshot current = VehicleSnapshot.of(vehicle);
+                if (current != null) {
+                    moves.add(new Move(null, current));
+                }
+            }
+        }
+
+        afterCommit(() -> {
+            for (Move move : moves) {
+                spatialIndex.put(move.current());
+                eventPublisher.publishEvent(new VehicleChangedEvent(move.current().id(), move.previous(), move.current()));
+            }
+        });
+        return updated;
+    }
+
+    private record Move(VehicleSnapshot previous, VehicleSnapshot current) {
     }
 }
@@ -0,0 +1,275 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Vehicle;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes vehicle position and availability changes to Server-Sent Events subscribers.
+ * <p>
+ * The event listener only records the change in each matching subscriber's pending map, keyed by
+ * vehicle, and never writes to a connection itself. Sending happens on a small drain pool, one task
+ * per subscriber at a time, and while a subscriber lags newer positions replace older ones in its
+ * map, so it receives the latest state of each vehicle rather than a growing backlog.
+ * <p>
+ * A servlet write blocks while the client is not reading, so each send runs on a writer thread and
+ * the drain waits for it only up to the send timeout. A subscriber whose send misses it is closed;
+ * a stalled connection therefore holds a drain thread for one timeout at most, and from then on only
+ * the writer thread stuck in its write, until the container gives up on the connection.
+ */
+@Service
+@Slf4j
+public class VehicleStreamService {
+
+    public static final String POSITION_EVENT = "position";
+    public static final String REMOVED_EVENT = "removed";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ExecutorService drainPool;
+    // At most one write per subscriber at a time, so its size is bounded by the subscriber limit
+    private final ExecutorService writePool;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final long sendTimeoutMillis;
+
+    public VehicleStreamService(@Value("${rentacar.stream.drain-threads:4}") int drainThreads,
+                                @Value("${rentacar.stream.timeout-ms:1800000}") long timeoutMillis,
+                                @Value("${rentacar.stream.max-subscribers:1000}") int maxSubscribers,
+                                @Value("${rentacar.stream.send-timeout-ms:2000}") long sendTimeoutMillis) {
+        this.drainPool = Executors.newFixedThreadPool(drainThreads, daemonThreads("vehicle-stream-"));
+        this.writePool = Executors.newCachedThreadPool(daemonThreads("vehicle-stream-write-"));
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Opens a stream of changes inside the bounding box, or of all changes when {@code bounds} is
+     * null. Returns {@code null} when the subscriber limit is reached.
+     */
+    public SseEmitter subscribe(Bounds bounds) {
+        return subscribe(new SseEmitter(timeoutMillis), bounds);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Bounds bounds) {
+        // Reserved before the subscriber exists, so concurrent subscribes cannot overshoot the limit
+        if (slots.incrementAndGet() > maxSubscribers) {
+            slots.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(emitter, bounds);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    // Completion follows a timeout or error, so only the first removal frees the slot
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            slots.decrementAndGet();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        VehicleSnapshot previous = event.previous();
+        VehicleSnapshot current = event.current();
+        for (Subscriber subscriber : subscribers) {
+            boolean visibleNow = current != null && current.available() && subscriber.contains(current);
+            boolean visibleBefore = previous != null && previous.available() && subscriber.contains(previous);
+            if (visibleNow) {
+                subscriber.offer(new Update(POSITION_EVENT, VehiclePosition.of(current)));
+            } else if (visibleBefore) {
+                subscriber.offer(new Update(REMOVED_EVENT, VehiclePosition.of(previous)));
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and finds subscribers that went away
+    @Scheduled(fixedRateString = "${rentacar.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::requestHeartbeat);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        drainPool.shutdownNow();
+        writePool.shutdownNow();
+    }
+
+    /**
+     * Bounding box in degrees; {@code west > east} means the box crosses the antimeridian.
+     */
+    public record Bounds(double south, double west, double north, double east) {
+
+        boolean contains(double latitude, double longitude) {
+            if (latitude < south || latitude > north) {
+                return false;
+            }
+            return west <= east
+                    ? longitude >= west && longitude <= east
+                    : longitude >= west || longitude <= east;
+        }
+    }
+
+    public record VehiclePosition(long id, double latitude, double longitude, Vehicle.VehicleType type) {
+
+        static VehiclePosition of(VehicleSnapshot snapshot) {
+            return new VehiclePosition(snapshot.id(), snapshot.latitude(), snapshot.longitude(), snapshot.type());
+        }
+    }
+
+    private record Update(String name, VehiclePosition position) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Bounds bounds;
+        // Latest undelivered update per vehicle; bounded by the number of vehicles in the box
+        private final Map<Long, Update> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        Subscriber(SseEmitter emitter, Bounds bounds) {
+            this.emitter = emitter;
+            this.bounds = bounds;
+        }
+
+        boolean contains(VehicleSnapshot snapshot) {
+            return bounds == null || bounds.contains(snapshot.latitude(), snapshot.longitude());
+        }
+
+        void offer(Update update) {
+            pending.put(update.position().id(), update);
+            schedule();
+        }
+
+        void requestHeartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    drainPool.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    send(SseEmitter.event().comment("heartbeat"));
+                }
+                for (Long vehicleId : pending.keySet()) {
+                    // Taking the entry out atomically never loses an update that replaced it meanwhile
+                    Update update = pending.remove(vehicleId);
+                    if (update == null) {
+                        continue;
+                    }
+                    send(SseEmitter.event().name(update.name()).data(update.position(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, stopped reading or the emitter already completed
+                log.debug("Closing vehicle stream: {}", e.getMessage());
+                unsubscribe(this);
+                pending.clear();
+                close(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // Updates that arrived after the iteration passed them get their own run
+            if (!pending.isEmpty() || heartbeatDue) {
+                schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            Future<?> write;
+            try {
+                write = writePool.submit(() -> {
+                    emitter.send(event);
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                throw new IllegalStateException("Vehicle stream is shutting down", e);
+            }
+            try {
+                write.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                write.cancel(true);
+                throw new IOException("Send did not complete within " + sendTimeoutMillis + " ms");
+            } catch (InterruptedException e) {
+                write.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                if (e.getCause() instanceof IllegalStateException illegalState) {
+                    throw illegalState;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        // The emitter's methods share one lock, which a write stuck on the socket still holds
+        private void close(Exception cause) {
+            try {
+                writePool.execute(() -> emitter.completeWithError(cause));
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the emitters are completed there
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.TileMath;
+import com.rentacar.geo.VectorTileEncoder;
+import com.rentacar.geo.VehicleSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the vehicle map layer as Mapbox Vector Tiles. Encoded tiles are kept in an LRU cache and
+ * a vehicle change only evicts the tiles that contained its old or new position.
+ */
+@Service
+public class VehicleTileService {
+
+    public static final String LAYER_NAME = "vehicles";
+    public static final int MAX_ZOOM = 20;
+
+    // Points this close to a tile edge (in tile pixels) are also drawn by the neighbouring tile,
+    // so markers are not clipped at tile borders
+    static final int BUFFER = 64;
+    private static final int EXTENT = VectorTileEncoder.DEFAULT_EXTENT;
+
+    private final VehicleService vehicleService;
+    private final Map<TileKey, byte[]> cache;
+    // Bumped on every eviction, guarded by the cache lock
+    private long evictions;
+
+    public VehicleTileService(VehicleService vehicleService,
+                              @Value("${rentacar.map.tile-cache-size:2048}") int cacheSize) {
+        this.vehicleService = vehicleService;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static boolean isValidTile(int z, int x, int y) {
+        return z >= 0 && z <= MAX_ZOOM && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    public byte[] getTile(int z, int x, int y) {
+        TileKey key = new TileKey(z, x, y);
+        long generation;
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            generation = evictions;
+        }
+        // Encoded outside the lock. If a vehicle changed meanwhile the tile may already be stale,
+        // so it is served but not cached
+        byte[] tile = encode(z, x, y);
+        synchronized (cache) {
+            if (generation == evictions) {
+                cache.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    private byte[] encode(int z, int x, int y) {
+        double buffer = (double) BUFFER / EXTENT;
+        double west = TileMath.tileLongitude(x - buffer, z);
+        double east = TileMath.tileLongitude(x + 1 + buffer, z);
+        double north = TileMath.tileLatitude(y - buffer, z);
+        double south = TileMath.tileLatitude(y + 1 + buffer, z);
+        double centerLongitude = TileMath.tileLongitude(x + 0.5, z);
+
+        List<VehicleSnapshot> vehicles = vehicleService.getAvailableVehicleSnapshots(south, west, north, east);
+        VectorTileEncoder encoder = new VectorTileEncoder(LAYER_NAME, z, x, y, EXTENT);
+        for (VehicleSnapshot vehicle : vehicles) {
+            // Buffered edge tiles at the antimeridian see vehicles from the other side of the map
+            double longitude = vehicle.longitude()
+                    + 360 * Math.round((centerLongitude - vehicle.longitude()) / 360);
+            encoder.addPoint(vehicle.id(), vehicle.latitude(), longitude,
+                    Map.of("id", vehicle.id(), "type", vehicle.type() != null ? vehicle.type().name() : ""));
+        }
+        return encoder.encode();
+    }
+
+    @EventListener
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        synchronized (cache) {
+            evictions++;
+            evict(event.previous());
+            evict(event.current());
+        }
+    }
+
+    private void evict(VehicleSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        double buffer = (double) BUFFER / EXTENT;
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            int tiles = 1 << z;
+            double px = TileMath.mercatorX(snapshot.longitude()) * tiles;
+            double py = TileMath.mercatorY(snapshot.latitude()) * tiles;
+            int minY = Math.max(0, (int) Math.floor(py - buffer));
+            int maxY = Math.min(tiles - 1, (int) Math.floor(py + buffer));
+            for (int x = (int) Math.floor(px - buffer); x <= (int) Math.floor(px + buffer); x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    cache.remove(new TileKey(z, Math.floorMod(x, tiles), y));
+                }
+            }
+        }
+    }
+
+    int cachedTileCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private record TileKey(int z, int x, int y) {
+    }
+}
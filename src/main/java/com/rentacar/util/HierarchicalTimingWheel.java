@@ -0,0 +1,153 @@
+package com.rentacar.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deadlines keyed by {@code K} in a hierarchical timing wheel. Level 0 has one bucket per tick; each
+ * bucket of level {@code i} spans {@code wheelSize^i} ticks and is cascaded into the lower levels
+ * when time reaches it. Scheduling and cancelling are O(1) and advancing touches only the buckets
+ * passed, so expiring deadlines never scans everything that is scheduled.
+ * <p>
+ * Deadlines fire on the first tick at or after them, in milliseconds of whatever clock the caller
+ * uses. Cancelled and rescheduled keys are dropped lazily when their old bucket is reached.
+ * <p>
+ * Not thread-safe.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    // levels.get(i)[slot] holds the entries whose deadline tick falls into that slot of level i
+    private final List<List<Entry<K>>[]> levels = new ArrayList<>();
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick " + tickMillis + " ms, size " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    public int size() {
+        return deadlineTicks.size();
+    }
+
+    /**
+     * Schedules the key, replacing any deadline it already had. A deadline that is already due
+     * fires on the next {@link #advanceTo}.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        // Round up so a key never fires before its deadline
+        long tick = Math.max(currentTick, -Math.floorDiv(-deadlineMillis, tickMillis));
+        deadlineTicks.put(key, tick);
+        place(new Entry<>(key, tick));
+    }
+
+    public boolean cancel(K key) {
+        return deadlineTicks.remove(key) != null;
+    }
+
+    /**
+     * Moves time forward and returns the keys whose deadline has passed, in deadline order.
+     */
+    public List<K> advanceTo(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        // Keys scheduled at the current tick
+        fire(levels.isEmpty() ? null : levels.get(0)[slot(currentTick, 0)], expired);
+        while (currentTick < targetTick) {
+            if (deadlineTicks.isEmpty()) {
+                // Only stale entries are left; drop them instead of walking the idle ticks
+                levels.clear();
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            for (int level = levels.size() - 1; level > 0; level--) {
+                if (currentTick % span(level) == 0) {
+                    cascade(level);
+                }
+            }
+            fire(levels.get(0)[slot(currentTick, 0)], expired);
+        }
+        return expired;
+    }
+
+    private void fire(List<Entry<K>> bucket, List<K> expired) {
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+        // Level 0 only holds the current rotation, so everything in the current slot is due
+        for (Entry<K> entry : bucket) {
+            if (isLive(entry)) {
+                deadlineTicks.remove(entry.key());
+                expired.add(entry.key());
+            }
+        }
+        bucket.clear();
+    }
+
+    private void cascade(int level) {
+        List<Entry<K>>[] buckets = levels.get(level);
+        int slot = slot(currentTick, level);
+        List<Entry<K>> bucket = buckets[slot];
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+        buckets[slot] = null;
+        for (Entry<K> entry : bucket) {
+            if (isLive(entry)) {
+                place(entry);
+            }
+        }
+    }
+
+    // Lowest level whose higher digits of the deadline tick match the current tick
+    private void place(Entry<K> entry) {
+        int level = 0;
+        while (Math.floorDiv(entry.tick(), span(level + 1)) != Math.floorDiv(currentTick, span(level + 1))) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            @SuppressWarnings("unchecked")
+            List<Entry<K>>[] buckets = new List[wheelSize];
+            levels.add(buckets);
+        }
+        List<Entry<K>>[] buckets = levels.get(level);
+        int slot = slot(entry.tick(), level);
+        if (buckets[slot] == null) {
+            buckets[slot] = new ArrayList<>();
+        }
+        buckets[slot].add(entry);
+    }
+
+    private boolean isLive(Entry<K> entry) {
+        Long tick = deadlineTicks.get(entry.key());
+        return tick != null && tick == entry.tick();
+    }
+
+    private int slot(long tick, int level) {
+        return (int) Math.floorMod(Math.floorDiv(tick, span(level)), (long) wheelSize);
+    }
+
+    // Ticks covered by one bucket of the level, saturating instead of overflowing
+    private long span(int level) {
+        long span = 1;
+        for (int i = 0; i < level; i++) {
+            if (span > Long.MAX_VALUE / wheelSize) {
+                return Long.MAX_VALUE;
+            }
+            span *= wheelSize;
+        }
+        return span;
+    }
+
+    private record Entry<K>(K key, long tick) {
+    }
+}
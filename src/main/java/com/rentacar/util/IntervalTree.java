@@ -0,0 +1,215 @@
+package com.rentacar.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closed intervals {@code [start, end]} identified by a {@code long} id, kept in an AVL tree ordered
+ * by start and augmented with the largest end of each subtree. Insert, remove and "does anything
+ * overlap" run in O(log n); listing the overlaps costs O(log n + k).
+ * <p>
+ * Not thread-safe.
+ */
+public class IntervalTree<K extends Comparable<? super K>> {
+
+    private Node<K> root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an interval. Ids must be unique; remove an interval before adding it again with new bounds.
+     */
+    public void insert(long id, K start, K end) {
+        if (start.compareTo(end) > 0) {
+            throw new IllegalArgumentException("Interval ends before it starts: " + start + " > " + end);
+        }
+        root = insert(root, new Node<>(id, start, end));
+        size++;
+    }
+
+    /**
+     * Removes the interval with this id and start. Returns whether it was present.
+     */
+    public boolean remove(long id, K start) {
+        int before = size;
+        root = remove(root, id, start);
+        return size < before;
+    }
+
+    /**
+     * Whether any interval shares at least one point with {@code [start, end]}.
+     */
+    public boolean overlaps(K start, K end) {
+        Node<K> node = root;
+        while (node != null) {
+            if (node.start.compareTo(end) <= 0 && node.end.compareTo(start) >= 0) {
+                return true;
+            }
+            // If the left subtree reaches start and holds no overlap, nothing to the right can either
+            if (node.left != null && node.left.maxEnd.compareTo(start) >= 0) {
+                node = node.left;
+            } else if (node.start.compareTo(end) <= 0) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ids of all intervals sharing at least one point with {@code [start, end]}, in start order.
+     */
+    public List<Long> overlapping(K start, K end) {
+        List<Long> ids = new ArrayList<>();
+        collect(root, start, end, ids);
+        return ids;
+    }
+
+    private void collect(Node<K> node, K start, K end, List<Long> ids) {
+        if (node == null || node.maxEnd.compareTo(start) < 0) {
+            return;
+        }
+        collect(node.left, start, end, ids);
+        if (node.start.compareTo(end) > 0) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (node.end.compareTo(start) >= 0) {
+            ids.add(node.id);
+        }
+        collect(node.right, start, end, ids);
+    }
+
+    private Node<K> insert(Node<K> node, Node<K> added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node<K> remove(Node<K> node, long id, K start) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, id, start);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, id, start);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace with the in-order successor
+            Node<K> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.right = removeMin(node.right);
+            successor.right = node.right;
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private Node<K> removeMin(Node<K> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private int compare(K start, long id, Node<K> node) {
+        int cmp = start.compareTo(node.start);
+        return cmp != 0 ? cmp : Long.compare(id, node.id);
+    }
+
+    private Node<K> balance(Node<K> node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<K> rotateRight(Node<K> node) {
+        Node<K> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<K> rotateLeft(Node<K> node) {
+        Node<K> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<K> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        K maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.compareTo(maxEnd) > 0) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.compareTo(maxEnd) > 0) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node<?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static final class Node<K> {
+
+        final long id;
+        final K start;
+        final K end;
+        K maxEnd;
+        int height = 1;
+        Node<K> left;
+        Node<K> right;
+
+        Node(long id, K start, K end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
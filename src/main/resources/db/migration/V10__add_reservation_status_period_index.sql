@@ -0,0 +1,4 @@
+-- Revenue report: aggregates reservations of given statuses overlapping a period
+-- (status IN (...) AND start_date <= :to AND end_date >= :from). The index narrows the scan to the
+-- statuses and start dates in range and checks end_date without visiting the table rows it rejects.
+CREATE INDEX IF NOT EXISTS idx_reservation_status_period ON reservation (status, start_date, end_date);
@@ -0,0 +1,18 @@
+-- Daily revenue rollup read by the revenue report: reservation count and total cost per start day,
+-- vehicle type and status. RevenueRollupService moves a reservation between rows in the same
+-- transaction as its status change and rebuilds the table weekly.
+CREATE TABLE IF NOT EXISTS revenue_daily (
+    day          DATE           NOT NULL,
+    vehicle_type VARCHAR(255)   NOT NULL,
+    status       VARCHAR(255)   NOT NULL,
+    reservations BIGINT         NOT NULL,
+    revenue      NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (day, vehicle_type, status)
+);
+
+-- Backfill from the existing reservations
+INSERT INTO revenue_daily (day, vehicle_type, status, reservations, revenue)
+SELECT CAST(r.start_date AS DATE), v.type, r.status, COUNT(*), SUM(r.total_cost)
+FROM reservation r JOIN vehicle v ON v.id = r.vehicle_id
+GROUP BY CAST(r.start_date AS DATE), v.type, r.status
+ON CONFLICT (day, vehicle_type, status) DO NOTHING;
@@ -0,0 +1,3 @@
+-- Time of the newest telemetry position written per vehicle. The batch position update only
+-- applies a ping newer than it, so a report delayed into a later flush cannot overwrite a newer one.
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS last_ping_at TIMESTAMP WITH TIME ZONE;
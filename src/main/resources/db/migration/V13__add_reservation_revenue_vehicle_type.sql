@@ -0,0 +1,8 @@
+-- Vehicle type a reservation is counted under in revenue_daily, fixed when it is booked so a later
+-- change of the vehicle's type cannot move it between rows. Existing reservations take the
+-- vehicle's current type; rebuild revenue_daily afterwards if types changed since they were booked.
+ALTER TABLE reservation ADD COLUMN IF NOT EXISTS revenue_vehicle_type VARCHAR(255);
+
+UPDATE reservation r SET revenue_vehicle_type = v.type
+FROM vehicle v
+WHERE v.id = r.vehicle_id AND r.revenue_vehicle_type IS NULL;
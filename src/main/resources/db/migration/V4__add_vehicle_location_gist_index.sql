@@ -0,0 +1,6 @@
+-- GiST index backing the ST_DWithin radius and <-> nearest-neighbour queries in VehicleRepository.
+-- The queries work on geography so distances are in meters; the index expression must match them.
+CREATE INDEX IF NOT EXISTS idx_vehicle_location_geography
+    ON vehicle USING GIST ((CAST(location AS geography)));
+
+ANALYZE vehicle;
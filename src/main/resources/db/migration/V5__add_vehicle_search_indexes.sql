@@ -0,0 +1,10 @@
+-- Indexes for the combined vehicle search (VehicleSpecifications). The search query only contains
+-- the predicates the user picked, so the planner can drive it from whichever of these is most selective.
+CREATE INDEX IF NOT EXISTS idx_vehicle_available_type ON vehicle (available, type);
+CREATE INDEX IF NOT EXISTS idx_vehicle_available_daily_rate ON vehicle (available, daily_rate);
+
+-- Overlap check of the availability filter: NOT EXISTS over the vehicle's reservations
+CREATE INDEX IF NOT EXISTS idx_reservation_vehicle_dates ON reservation (vehicle_id, start_date, end_date);
+
+ANALYZE vehicle;
+ANALYZE reservation;
@@ -0,0 +1,10 @@
+-- Operating zones checked by GeofenceService on every vehicle position change. The service keeps its
+-- own in-memory STRtree, the GiST index serves ad-hoc spatial queries against the table.
+CREATE TABLE IF NOT EXISTS geofence (
+    id     BIGSERIAL PRIMARY KEY,
+    name   VARCHAR(255) NOT NULL,
+    area   geometry(Polygon, 4326) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE INDEX IF NOT EXISTS idx_geofence_area ON geofence USING GIST (area);
@@ -0,0 +1,15 @@
+-- No two non-canceled reservations of a vehicle may overlap. The application checks this before
+-- inserting, but two concurrent bookings can both pass that check at READ COMMITTED; the exclusion
+-- constraint makes the second insert fail with SQLSTATE 23P01, which ReservationService reports as
+-- a ReservationException. Closed bounds match the overlap rule of findOverlappingReservations.
+-- Existing overlapping rows have to be canceled before the constraint can be added.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'reservation_vehicle_period_excl') THEN
+        ALTER TABLE reservation ADD CONSTRAINT reservation_vehicle_period_excl
+            EXCLUDE USING gist (vehicle_id WITH =, tsrange(start_date, end_date, '[]') WITH &&)
+            WHERE (status <> 'CANCELED');
+    END IF;
+END $$;
@@ -0,0 +1,10 @@
+-- Payment holds: a PENDING reservation blocks its vehicle only until hold_expires_at, after which
+-- BookingHoldService cancels it. The partial index serves the startup load of the open holds.
+ALTER TABLE reservation ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP;
+
+-- Checkouts left pending before holds existed are given one regular hold period by
+-- BookingHoldService at startup, on the application's clock like every other hold, rather than here
+-- with the database's now(), which may run in another time zone.
+
+CREATE INDEX IF NOT EXISTS idx_reservation_pending_hold ON reservation (hold_expires_at)
+    WHERE status = 'PENDING';
@@ -0,0 +1,24 @@
+-- Vehicle, Reservation, Payment and User take their ids from sequences with a pooled optimizer
+-- (allocationSize = 50 in the entities), so Hibernate can batch inserts instead of running one
+-- INSERT ... RETURNING per row. The INCREMENT BY must equal the allocationSize.
+--
+-- Each sequence starts past the current ids with room for a full block. The old identity/serial
+-- default is dropped: a database-side nextval would hand out ids inside blocks Hibernate reserved.
+DO $$
+DECLARE
+    t TEXT;
+    max_id BIGINT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['vehicle', 'reservation', 'payment', 'users'] LOOP
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', t || '_seq');
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', t) INTO max_id;
+        PERFORM setval(t || '_seq', GREATEST(max_id + 50, nextval(t || '_seq')), true);
+
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = t AND column_name = 'id' AND is_identity = 'YES') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+        ELSE
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', t);
+        END IF;
+    END LOOP;
+END $$;
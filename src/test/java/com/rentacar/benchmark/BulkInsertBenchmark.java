@@ -0,0 +1,203 @@
+package com.rentacar.benchmark;
+
+import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisting a batch of vehicles with one reservation each, as {@code saveAll} does, with IDENTITY
+ * ids and no batching (before) against pooled sequences with JDBC batching and ordered inserts
+ * (after). The entities mirror the mapped columns of Vehicle and Reservation without the PostGIS
+ * point, on an in-memory H2 database; a networked PostgreSQL adds a round trip per statement, so
+ * the gap there is larger than measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    @Param({"identity", "pooled-batched"})
+    private String ids;
+
+    @Param({"1000"})
+    private int vehicles;
+
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+    private boolean pooled;
+    private long plate;
+
+    @Setup
+    public void setup() {
+        pooled = ids.equals("pooled-batched");
+        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder()
+                // YEAR is a keyword in H2 2.x but a plain column of the vehicle table
+                .applySetting("hibernate.connection.url",
+                        "jdbc:h2:mem:bulk-" + ids + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR")
+                .applySetting("hibernate.connection.username", "sa")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .applySetting("hibernate.show_sql", "false");
+        if (pooled) {
+            builder.applySetting("hibernate.jdbc.batch_size", "50")
+                    .applySetting("hibernate.order_inserts", "true")
+                    .applySetting("hibernate.order_updates", "true");
+        }
+        registry = builder.build();
+        MetadataSources sources = new MetadataSources(registry);
+        if (pooled) {
+            sources.addAnnotatedClass(PooledVehicle.class).addAnnotatedClass(PooledReservation.class);
+        } else {
+            sources.addAnnotatedClass(IdentityVehicle.class).addAnnotatedClass(IdentityReservation.class);
+        }
+        sessionFactory = sources.buildMetadata().buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    // Keeps the tables from growing across iterations
+    @Setup(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("delete from " + (pooled ? "PooledReservation" : "IdentityReservation")).executeUpdate();
+            session.createMutationQuery("delete from " + (pooled ? "PooledVehicle" : "IdentityVehicle")).executeUpdate();
+        });
+    }
+
+    @Benchmark
+    public int saveVehiclesWithReservations() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            List<Object> entities = new ArrayList<>(vehicles * 2);
+            LocalDateTime start = LocalDateTime.of(2024, 6, 1, 10, 0);
+            for (int i = 0; i < vehicles; i++) {
+                String licensePlate = "WX" + (plate++);
+                if (pooled) {
+                    PooledVehicle vehicle = new PooledVehicle(licensePlate);
+                    entities.add(vehicle);
+                    entities.add(new PooledReservation(vehicle, start));
+                } else {
+                    IdentityVehicle vehicle = new IdentityVehicle(licensePlate);
+                    entities.add(vehicle);
+                    entities.add(new IdentityReservation(vehicle, start));
+                }
+            }
+            // Interleaved like saveAll of a mixed graph; order_inserts regroups them per table
+            for (Object entity : entities) {
+                session.persist(entity);
+            }
+            session.getTransaction().commit();
+            return entities.size();
+        }
+    }
+
+    @MappedSuperclass
+    static class VehicleColumns {
+        String brand = "Toyota";
+        String model = "Corolla";
+        int year = 2022;
+        String type = "SEDAN";
+        String licensePlate;
+        int seats = 5;
+        String fuelType = "Petrol";
+        BigDecimal dailyRate = BigDecimal.valueOf(150);
+        boolean available = true;
+        Double latitude = 52.23;
+        Double longitude = 21.01;
+    }
+
+    @MappedSuperclass
+    static class ReservationColumns {
+        LocalDateTime startDate;
+        LocalDateTime endDate;
+        BigDecimal totalCost = BigDecimal.valueOf(450);
+        String status = "PENDING";
+        LocalDateTime holdExpiresAt;
+    }
+
+    @Entity(name = "IdentityVehicle")
+    static class IdentityVehicle extends VehicleColumns {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        IdentityVehicle() {
+        }
+
+        IdentityVehicle(String licensePlate) {
+            this.licensePlate = licensePlate;
+        }
+    }
+
+    @Entity(name = "IdentityReservation")
+    static class IdentityReservation extends ReservationColumns {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        IdentityVehicle vehicle;
+
+        IdentityReservation() {
+        }
+
+        IdentityReservation(IdentityVehicle vehicle, LocalDateTime start) {
+            this.vehicle = vehicle;
+            this.startDate = start;
+            this.endDate = start.plusDays(3);
+            this.holdExpiresAt = start.minusDays(1);
+        }
+    }
+
+    @Entity(name = "PooledVehicle")
+    static class PooledVehicle extends VehicleColumns {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_vehicle_seq")
+        @SequenceGenerator(name = "pooled_vehicle_seq", sequenceName = "pooled_vehicle_seq", allocationSize = 50)
+        Long id;
+
+        PooledVehicle() {
+        }
+
+        PooledVehicle(String licensePlate) {
+            this.licensePlate = licensePlate;
+        }
+    }
+
+    @Entity(name = "PooledReservation")
+    static class PooledReservation extends ReservationColumns {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_reservation_seq")
+        @SequenceGenerator(name = "pooled_reservation_seq", sequenceName = "pooled_reservation_seq", allocationSize = 50)
+        Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        PooledVehicle vehicle;
+
+        PooledReservation() {
+        }
+
+        PooledReservation(PooledVehicle vehicle, LocalDateTime start) {
+            this.vehicle = vehicle;
+            this.startDate = start;
+            this.endDate = start.plusDays(3);
+            this.holdExpiresAt = start.minusDays(1);
+        }
+    }
+}
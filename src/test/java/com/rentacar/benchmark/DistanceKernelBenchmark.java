@@ -0,0 +1,115 @@
+package com.rentacar.benchmark;
+
+import com.rentacar.geo.DistanceKernel;
+import com.rentacar.model.Vehicle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distances from one origin to a whole candidate set: the former per-vehicle Haversine over boxed
+ * entity getters vs. the struct-of-arrays kernel, with and without the equirectangular pre-filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceKernelBenchmark {
+
+    @Param({"10000"})
+    private int candidates;
+
+    @Param({"10"})
+    private double radiusKm;
+
+    private List<Vehicle> vehicles;
+    private double[] latRad;
+    private double[] lonRad;
+    private double[] cosLat;
+    private double[] distances;
+    private int[] selected;
+    private double originLat;
+    private double originLon;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(11);
+        originLat = 52.23;
+        originLon = 21.01;
+        vehicles = new ArrayList<>(candidates);
+        latRad = new double[candidates];
+        lonRad = new double[candidates];
+        cosLat = new double[candidates];
+        distances = new double[candidates];
+        selected = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            // Roughly what a radius query's bounding box cells contain: a 30 km square around the origin
+            double lat = originLat + (random.nextDouble() - 0.5) * 0.27;
+            double lon = originLon + (random.nextDouble() - 0.5) * 0.44;
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId((long) i);
+            vehicle.setLatitude(lat);
+            vehicle.setLongitude(lon);
+            vehicles.add(vehicle);
+            latRad[i] = Math.toRadians(lat);
+            lonRad[i] = Math.toRadians(lon);
+            cosLat[i] = Math.cos(latRad[i]);
+        }
+    }
+
+    @Benchmark
+    public int perVehicleHaversine() {
+        int within = 0;
+        for (Vehicle vehicle : vehicles) {
+            if (calculateDistance(originLat, originLon, vehicle.getLatitude(), vehicle.getLongitude()) <= radiusKm) {
+                within++;
+            }
+        }
+        return within;
+    }
+
+    @Benchmark
+    public int batchKernel() {
+        new DistanceKernel(originLat, originLon).distancesKm(latRad, lonRad, cosLat, candidates, distances);
+        int within = 0;
+        for (int i = 0; i < candidates; i++) {
+            within += distances[i] <= radiusKm ? 1 : 0;
+        }
+        return within;
+    }
+
+    @Benchmark
+    public int prefilteredKernel() {
+        DistanceKernel kernel = new DistanceKernel(originLat, originLon);
+        int count = kernel.selectCandidates(latRad, lonRad, cosLat, candidates, radiusKm, selected);
+        kernel.distancesKm(latRad, lonRad, cosLat, selected, count, distances);
+        int within = 0;
+        for (int k = 0; k < count; k++) {
+            within += distances[k] <= radiusKm ? 1 : 0;
+        }
+        return within;
+    }
+
+    // Copy of the per-vehicle Haversine the services and controller used before the shared kernel
+    private static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        if (lat2 == 0 && lon2 == 0) return Double.MAX_VALUE;
+
+        final int R = 6371;
+
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return R * c;
+    }
+}
@@ -0,0 +1,88 @@
+package com.rentacar.benchmark;
+
+import com.rentacar.geo.GeofenceIndex;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking one position report against all zones: a plain loop over the polygons vs. the
+ * STRtree of prepared geometries in {@link GeofenceIndex}. Zones are irregular 48-vertex polygons of
+ * 5-25 km radius scattered over Poland; pings fall anywhere in the same area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceBenchmark {
+
+    private static final int VERTICES = 48;
+
+    @Param({"100", "500"})
+    private int zones;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private Polygon[] polygons;
+    private GeofenceIndex index;
+    private double[] pingLat;
+    private double[] pingLon;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(17);
+        polygons = new Polygon[zones];
+        Map<Long, Polygon> areas = new HashMap<>();
+        for (int z = 0; z < zones; z++) {
+            double centerLat = 49.0 + random.nextDouble() * 5.8;
+            double centerLon = 14.1 + random.nextDouble() * 10.0;
+            double radiusDeg = (5 + random.nextDouble() * 20) / 111.2;
+            Coordinate[] ring = new Coordinate[VERTICES + 1];
+            for (int v = 0; v < VERTICES; v++) {
+                double angle = 2 * Math.PI * v / VERTICES;
+                double r = radiusDeg * (0.6 + random.nextDouble() * 0.4);
+                ring[v] = new Coordinate(centerLon + r * Math.cos(angle) / Math.cos(Math.toRadians(centerLat)),
+                        centerLat + r * Math.sin(angle));
+            }
+            ring[VERTICES] = ring[0];
+            polygons[z] = geometryFactory.createPolygon(ring);
+            areas.put((long) z, polygons[z]);
+        }
+        index = new GeofenceIndex(areas, Map.of());
+
+        pingLat = new double[1024];
+        pingLon = new double[1024];
+        for (int i = 0; i < pingLat.length; i++) {
+            pingLat[i] = 49.0 + random.nextDouble() * 5.8;
+            pingLon[i] = 14.1 + random.nextDouble() * 10.0;
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        int i = next++ & 1023;
+        Point point = geometryFactory.createPoint(new Coordinate(pingLon[i], pingLat[i]));
+        int inside = 0;
+        for (Polygon polygon : polygons) {
+            if (polygon.covers(point)) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public long[] preparedTree() {
+        int i = next++ & 1023;
+        return index.zonesAt(pingLat[i], pingLon[i]);
+    }
+}
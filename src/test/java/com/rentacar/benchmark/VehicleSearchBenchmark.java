@@ -0,0 +1,86 @@
+package com.rentacar.benchmark;
+
+import com.rentacar.dto.VehicleSearchCriteria;
+import com.rentacar.geo.Neighbor;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.geo.VehicleSpatialIndex;
+import com.rentacar.model.Vehicle;
+import com.rentacar.service.VehicleSearchService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * In-memory part of the combined search (spatial driver plus snapshot filters) per filter
+ * combination, against a 100k fleet spread over Poland. The candidates left over are what the
+ * database query then receives as its id list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleSearchBenchmark {
+
+    private static final String[] FUELS = {"Petrol", "Diesel", "Hybrid", "Electric"};
+
+    @Param({"radius", "radius+type", "radius+type+price", "radius+type+price+seats+fuel"})
+    private String combination;
+
+    @Param({"25"})
+    private double radiusKm;
+
+    private VehicleSpatialIndex index;
+    private Predicate<VehicleSnapshot> filter;
+    private double[] queryLat;
+    private double[] queryLon;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(13);
+        Vehicle.VehicleType[] types = Vehicle.VehicleType.values();
+        List<Vehicle> fleet = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(id);
+            vehicle.setLatitude(49.0 + random.nextDouble() * 5.8);
+            vehicle.setLongitude(14.1 + random.nextDouble() * 10.0);
+            vehicle.setType(types[random.nextInt(types.length)]);
+            vehicle.setDailyRate(BigDecimal.valueOf(80 + random.nextInt(320)));
+            vehicle.setSeats(2 + random.nextInt(6));
+            vehicle.setFuelType(FUELS[random.nextInt(FUELS.length)]);
+            vehicle.setAvailable(random.nextInt(10) > 0);
+            fleet.add(vehicle);
+        }
+        index = new VehicleSpatialIndex(0.05);
+        index.rebuild(fleet);
+
+        boolean type = combination.contains("type");
+        boolean price = combination.contains("price");
+        boolean seatsAndFuel = combination.contains("seats");
+        filter = VehicleSearchService.snapshotFilter(new VehicleSearchCriteria(null, null, radiusKm,
+                type ? Vehicle.VehicleType.SUV : null, null, null,
+                price ? BigDecimal.valueOf(100) : null, price ? BigDecimal.valueOf(200) : null,
+                seatsAndFuel ? 5 : null, seatsAndFuel ? "diesel" : null));
+
+        queryLat = new double[1024];
+        queryLon = new double[1024];
+        for (int i = 0; i < queryLat.length; i++) {
+            queryLat[i] = 49.0 + random.nextDouble() * 5.8;
+            queryLon[i] = 14.1 + random.nextDouble() * 10.0;
+        }
+    }
+
+    @Benchmark
+    public List<Neighbor> spatialDriver() {
+        int i = next++ & 1023;
+        return index.findWithinRadius(queryLat[i], queryLon[i], radiusKm, filter);
+    }
+}
@@ -0,0 +1,82 @@
+package com.rentacar.benchmark;
+
+import com.rentacar.geo.GeoUtils;
+import com.rentacar.geo.Neighbor;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.geo.VehicleSpatialIndex;
+import com.rentacar.model.Vehicle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Radius and nearest-20 lookups against a fleet spread over Poland: grid index vs. the previous full scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleSpatialIndexBenchmark {
+
+    @Param({"100000"})
+    private int fleetSize;
+
+    @Param({"10"})
+    private double radiusKm;
+
+    private List<Vehicle> fleet;
+    private VehicleSpatialIndex index;
+    private double[] queryLat;
+    private double[] queryLon;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(7);
+        fleet = new ArrayList<>(fleetSize);
+        for (long id = 1; id <= fleetSize; id++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(id);
+            vehicle.setLatitude(49.0 + random.nextDouble() * 5.8);
+            vehicle.setLongitude(14.1 + random.nextDouble() * 10.0);
+            vehicle.setAvailable(true);
+            fleet.add(vehicle);
+        }
+        index = new VehicleSpatialIndex(0.05);
+        index.rebuild(fleet);
+
+        queryLat = new double[1024];
+        queryLon = new double[1024];
+        for (int i = 0; i < queryLat.length; i++) {
+            queryLat[i] = 49.0 + random.nextDouble() * 5.8;
+            queryLon[i] = 14.1 + random.nextDouble() * 10.0;
+        }
+    }
+
+    @Benchmark
+    public List<Long> gridIndex() {
+        int i = next++ & 1023;
+        return index.findWithinRadius(queryLat[i], queryLon[i], radiusKm);
+    }
+
+    @Benchmark
+    public List<Neighbor> nearest20() {
+        int i = next++ & 1023;
+        return index.findNearest(queryLat[i], queryLon[i], 20, VehicleSnapshot::available);
+    }
+
+    @Benchmark
+    public List<Vehicle> fullScan() {
+        int i = next++ & 1023;
+        double lat = queryLat[i];
+        double lon = queryLon[i];
+        return fleet.stream()
+                .filter(v -> GeoUtils.haversineKm(lat, lon, v.getLatitude(), v.getLongitude()) <= radiusKm)
+                .toList();
+    }
+}
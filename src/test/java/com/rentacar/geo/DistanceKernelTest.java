@@ -0,0 +1,75 @@
+package com.rentacar.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceKernelTest {
+
+    @Test
+    void testBatchDistancesMatchHaversine() {
+        SplittableRandom random = new SplittableRandom(3);
+        int count = 1000;
+        double[][] points = randomPoints(random, count, -89, 89, -180, 180);
+        DistanceKernel kernel = new DistanceKernel(52.23, 21.01);
+        double[] distances = new double[count];
+
+        kernel.distancesKm(points[0], points[1], points[2], count, distances);
+
+        for (int i = 0; i < count; i++) {
+            double expected = GeoUtils.haversineKm(52.23, 21.01,
+                    Math.toDegrees(points[0][i]), Math.toDegrees(points[1][i]));
+            assertEquals(expected, distances[i], 1e-6);
+        }
+    }
+
+    @Test
+    void testPrefilterNeverDropsPointsInsideTheRadius() {
+        SplittableRandom random = new SplittableRandom(5);
+        int count = 20000;
+        for (double[] origin : new double[][] {{52.23, 21.01}, {-33.9, 151.2}, {64.1, -21.9}, {0.5, 179.95}}) {
+            double[][] points = randomPoints(random, count, origin[0] - 2, origin[0] + 2, origin[1] - 3, origin[1] + 3);
+            DistanceKernel kernel = new DistanceKernel(origin[0], origin[1]);
+            int[] candidates = new int[count];
+            boolean[] selected = new boolean[count];
+
+            int selectedCount = kernel.selectCandidates(points[0], points[1], points[2], count, 50, candidates);
+            for (int k = 0; k < selectedCount; k++) {
+                selected[candidates[k]] = true;
+            }
+
+            int inside = 0;
+            for (int i = 0; i < count; i++) {
+                if (kernel.distanceKm(Math.toDegrees(points[0][i]), Math.toDegrees(points[1][i])) <= 50) {
+                    inside++;
+                    assertTrue(selected[i], "Point inside the radius was filtered out");
+                }
+            }
+            assertTrue(inside > 0);
+            assertTrue(selectedCount < count, "Pre-filter should drop far away points");
+        }
+    }
+
+    @Test
+    void testPrefilterPassesEverythingNearThePoles() {
+        double[][] points = randomPoints(new SplittableRandom(9), 100, 80, 90, -180, 180);
+        int[] candidates = new int[100];
+
+        assertEquals(100, new DistanceKernel(85, 0).selectCandidates(points[0], points[1], points[2], 100, 10, candidates));
+    }
+
+    // {latitude radians, longitude radians, cos(latitude)}
+    private static double[][] randomPoints(SplittableRandom random, int count,
+                                           double minLat, double maxLat, double minLon, double maxLon) {
+        double[][] points = new double[3][count];
+        for (int i = 0; i < count; i++) {
+            double lon = minLon + random.nextDouble() * (maxLon - minLon);
+            points[0][i] = Math.toRadians(minLat + random.nextDouble() * (maxLat - minLat));
+            points[1][i] = Math.toRadians(lon > 180 ? lon - 360 : lon);
+            points[2][i] = Math.cos(points[0][i]);
+        }
+        return points;
+    }
+}
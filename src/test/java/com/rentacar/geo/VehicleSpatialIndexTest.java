@@ -0,0 +1,238 @@
+package com.rentacar.geo;
+
+import com.rentacar.model.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleSpatialIndexTest {
+
+    private VehicleSpatialIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new VehicleSpatialIndex(0.05);
+    }
+
+    @Test
+    void testFindWithinRadiusMatchesFullScan() {
+        Random random = new Random(42);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            vehicles.add(vehicle(id, 49 + random.nextDouble() * 6, 14 + random.nextDouble() * 10));
+        }
+        index.rebuild(vehicles);
+
+        for (int i = 0; i < 50; i++) {
+            double lat = 49 + random.nextDouble() * 6;
+            double lon = 14 + random.nextDouble() * 10;
+            double radius = 1 + random.nextDouble() * 60;
+
+            Set<Long> expected = new HashSet<>();
+            for (Vehicle v : vehicles) {
+                if (GeoUtils.haversineKm(lat, lon, v.getLatitude(), v.getLongitude()) <= radius) {
+                    expected.add(v.getId());
+                }
+            }
+
+            assertEquals(expected, new HashSet<>(index.findWithinRadius(lat, lon, radius)));
+        }
+    }
+
+    @Test
+    void testFindNearestMatchesSortedFullScan() {
+        Random random = new Random(7);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            Vehicle vehicle = vehicle(id, 49 + random.nextDouble() * 6, 14 + random.nextDouble() * 10);
+            vehicle.setAvailable(id % 3 != 0);
+            vehicles.add(vehicle);
+        }
+        index.rebuild(vehicles);
+
+        for (int i = 0; i < 50; i++) {
+            double lat = 48 + random.nextDouble() * 8;
+            double lon = 13 + random.nextDouble() * 12;
+            int k = 1 + random.nextInt(30);
+
+            List<Long> expected = vehicles.stream()
+                    .filter(Vehicle::isAvailable)
+                    .sorted(Comparator.comparingDouble((Vehicle v) ->
+                            GeoUtils.haversineKm(lat, lon, v.getLatitude(), v.getLongitude())))
+                    .limit(k)
+                    .map(Vehicle::getId)
+                    .toList();
+
+            List<Neighbor> nearest = index.findNearest(lat, lon, k, VehicleSnapshot::available);
+            assertEquals(expected, nearest.stream().map(Neighbor::id).toList());
+        }
+    }
+
+    @Test
+    void testFindNearestReturnsFewerWhenFleetIsSmall() {
+        index.put(vehicle(1L, 52.2297, 21.0122));
+        index.put(vehicle(2L, -33.8688, 151.2093));
+
+        List<Neighbor> nearest = index.findNearest(50.06, 19.94, 20, snapshot -> true);
+
+        assertEquals(List.of(1L, 2L), nearest.stream().map(Neighbor::id).toList());
+        assertTrue(nearest.get(0).distanceKm() < nearest.get(1).distanceKm());
+    }
+
+    @Test
+    void testClustersAggregateAvailableVehiclesAtEveryZoom() {
+        Random random = new Random(11);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            Vehicle vehicle = vehicle(id, 52 + random.nextDouble(), 20.5 + random.nextDouble());
+            vehicle.setAvailable(id % 5 != 0);
+            vehicle.setType(id % 2 == 0 ? Vehicle.VehicleType.SUV : Vehicle.VehicleType.SEDAN);
+            vehicles.add(vehicle);
+        }
+        index.rebuild(vehicles);
+
+        for (int zoom = 0; zoom <= VehicleSpatialIndex.MAX_CLUSTER_ZOOM; zoom++) {
+            List<VehicleCluster> clusters = index.findClusters(51, 19, 54, 23, zoom);
+
+            assertEquals(400, clusters.stream().mapToInt(VehicleCluster::count).sum());
+            assertEquals(200, clusters.stream()
+                    .mapToInt(c -> c.types().getOrDefault(Vehicle.VehicleType.SUV, 0)).sum());
+            for (VehicleCluster cluster : clusters) {
+                assertTrue(cluster.latitude() >= 52 && cluster.latitude() <= 53);
+            }
+        }
+        // Zoomed out the whole area collapses into a single cluster
+        assertEquals(1, index.findClusters(51, 19, 54, 23, 3).size());
+    }
+
+    @Test
+    void testClustersFollowMovesAndRemovals() {
+        Vehicle vehicle = vehicle(1L, 52.2297, 21.0122);
+        vehicle.setAvailable(true);
+        index.put(vehicle);
+        Vehicle rented = vehicle(2L, 52.2300, 21.0130);
+        rented.setAvailable(false);
+        index.put(rented);
+
+        List<VehicleCluster> clusters = index.findClusters(52, 20.5, 52.5, 21.5, 10);
+        assertEquals(1, clusters.size());
+        assertEquals(1, clusters.get(0).count());
+
+        vehicle.setAvailable(false);
+        index.put(vehicle);
+        assertTrue(index.findClusters(52, 20.5, 52.5, 21.5, 10).isEmpty());
+
+        vehicle.setAvailable(true);
+        index.put(vehicle);
+        index.remove(1L);
+        assertTrue(index.findClusters(52, 20.5, 52.5, 21.5, 10).isEmpty());
+    }
+
+    @Test
+    void testFindInBoundingBox() {
+        index.put(vehicle(1L, 52.2297, 21.0122));
+        index.put(vehicle(2L, 50.0647, 19.9450));
+        index.put(vehicle(3L, -17.0, 179.9));
+
+        assertEquals(Set.of(1L), ids(index.findInBoundingBox(52, 20.5, 52.5, 21.5, snapshot -> true)));
+        assertEquals(Set.of(1L, 2L), ids(index.findInBoundingBox(49, 14, 55, 24, snapshot -> true)));
+        // West greater than east: the box crosses the antimeridian
+        assertEquals(Set.of(3L), ids(index.findInBoundingBox(-18, 179, -16, -179, snapshot -> true)));
+    }
+
+    @Test
+    void testPutMovesVehicleBetweenCells() {
+        Vehicle vehicle = vehicle(1L, 52.2297, 21.0122);
+        index.put(vehicle);
+        assertEquals(List.of(1L), index.findWithinRadius(52.23, 21.01, 1));
+
+        vehicle.setLatitude(50.0647);
+        vehicle.setLongitude(19.9450);
+        index.put(vehicle);
+
+        assertTrue(index.findWithinRadius(52.23, 21.01, 1).isEmpty());
+        assertEquals(List.of(1L), index.findWithinRadius(50.06, 19.94, 1));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testVehiclesWithoutCoordinatesAreNotIndexed() {
+        Vehicle vehicle = vehicle(1L, 52.2297, 21.0122);
+        index.put(vehicle);
+
+        vehicle.setLatitude(null);
+        index.put(vehicle);
+        index.put(vehicle(2L, 0, 0));
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRemove() {
+        index.put(vehicle(1L, 52.2297, 21.0122));
+        index.remove(1L);
+
+        assertTrue(index.findWithinRadius(52.23, 21.01, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRadiusQueryAcrossAntimeridian() {
+        index.put(vehicle(1L, -17.0, 179.99));
+        index.put(vehicle(2L, -17.0, -179.99));
+
+        assertEquals(Set.of(1L, 2L), new HashSet<>(index.findWithinRadius(-17.0, 180.0, 5)));
+    }
+
+    @Test
+    void testLoadIfNeededLoadsOnce() {
+        List<Vehicle> source = List.of(vehicle(1L, 52.2297, 21.0122));
+        int[] calls = {0};
+
+        index.loadIfNeeded(() -> { calls[0]++; return source; });
+        index.loadIfNeeded(() -> { calls[0]++; return source; });
+
+        assertTrue(index.isLoaded());
+        assertEquals(1, calls[0]);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testChangesCommittedWhileLoadingSurviveTheLoad() {
+        // Read before vehicle 1 moved to Krakow and vehicle 2 was deleted
+        List<Vehicle> stale = List.of(vehicle(1L, 52.2297, 21.0122), vehicle(2L, 52.2297, 21.0122));
+
+        index.loadIfNeeded(() -> {
+            index.put(vehicle(1L, 50.0647, 19.9450));
+            index.remove(2L);
+            return stale;
+        });
+
+        assertEquals(List.of(1L), index.findWithinRadius(50.06, 19.94, 5));
+        assertTrue(index.findWithinRadius(52.23, 21.01, 5).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    private static Set<Long> ids(List<VehicleSnapshot> snapshots) {
+        Set<Long> ids = new HashSet<>();
+        snapshots.forEach(snapshot -> ids.add(snapshot.id()));
+        return ids;
+    }
+
+    static Vehicle vehicle(long id, double latitude, double longitude) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setLatitude(latitude);
+        vehicle.setLongitude(longitude);
+        vehicle.setType(Vehicle.VehicleType.SEDAN);
+        return vehicle;
+    }
+}
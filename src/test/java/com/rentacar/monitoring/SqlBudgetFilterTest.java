@@ -0,0 +1,63 @@
+package com.rentacar.monitoring;
+
+import com.rentacar.config.SqlBudgetFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlBudgetFilterTest {
+
+    private final SqlCountingInspector inspector = new SqlCountingInspector();
+    private final SqlOffenderLog offenderLog = new SqlOffenderLog(10);
+    private final SqlBudgetFilter filter = new SqlBudgetFilter(offenderLog, 5, 3);
+
+    @Test
+    void testRecordsRequestOverBudgetUnderItsHandlerPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/reports/users");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/admin/reports/users");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            inspector.inspect("select u from users u");
+            for (int i = 0; i < 4; i++) {
+                inspector.inspect("select r from reservation r where r.user_id=?");
+            }
+        });
+
+        List<SqlOffender> offenders = offenderLog.recent();
+        assertEquals(1, offenders.size());
+        assertEquals("/admin/reports/users", offenders.get(0).path());
+        assertEquals(5, offenders.get(0).statements());
+        assertEquals(1, offenders.get(0).violations().size());
+        assertTrue(offenders.get(0).violations().get(0).contains("ran 4 times"));
+    }
+
+    @Test
+    void testRequestWithinBudgetIsNotRecordedAndStatementsOutsideRequestsAreIgnored() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/vehicles"), new MockHttpServletResponse(),
+                (req, res) -> inspector.inspect("select v from vehicle v"));
+        inspector.inspect("select outside a request");
+
+        assertTrue(offenderLog.recent().isEmpty());
+        assertNull(SqlStatementMonitor.current());
+    }
+
+    @Test
+    void testScopeLeftOpenDoesNotHideTheRequestErrorOrStayBound() {
+        IllegalArgumentException failure = new IllegalArgumentException("handler failed");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/vehicles"), new MockHttpServletResponse(),
+                        (req, res) -> {
+                            SqlStatementMonitor.begin();
+                            throw failure;
+                        }));
+
+        assertSame(failure, thrown);
+        assertNull(SqlStatementMonitor.current());
+    }
+}
@@ -0,0 +1,121 @@
+package com.rentacar.monitoring;
+
+import jakarta.persistence.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.internal.StatisticsInitiator;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The monitoring hooks against a real Hibernate session on H2, with the settings SqlMonitoringConfig applies.
+ */
+class SqlCaptureTest {
+
+    private static StandardServiceRegistry registry;
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void setup() {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url", "jdbc:h2:mem:sql-capture;DB_CLOSE_DELAY=-1")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_INSPECTOR, new SqlCountingInspector())
+                .applySetting(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlTimingListener.class.getName())
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, true)
+                .applySetting(StatisticsInitiator.STATS_BUILDER, (StatisticsFactory) SqlCountingStatistics::new)
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Customer.class)
+                .addAnnotatedClass(Booking.class)
+                .buildMetadata().buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < 10; i++) {
+                Customer customer = new Customer();
+                session.persist(customer);
+                for (int j = 0; j < 2; j++) {
+                    Booking booking = new Booking();
+                    booking.customer = customer;
+                    session.persist(booking);
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    static void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void testLazyCollectionLoopIsReportedAsRepeatedStatement() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            sessionFactory.inSession(session -> session.createQuery("from Customer", Customer.class)
+                    .getResultList()
+                    .forEach(customer -> customer.bookings.size()));
+
+            SqlRequestStats stats = sql.stats();
+            assertEquals(11, stats.getStatements());
+            assertEquals(10, stats.getRows());
+            assertEquals(10, stats.getCollectionFetches());
+            assertEquals(10, stats.getMostRepeatedStatement().getValue());
+            assertThrows(AssertionError.class, () -> sql.assertStatementsAtMost(2));
+            assertThrows(AssertionError.class, () -> sql.assertNoStatementRepeatedMoreThan(5));
+        }
+    }
+
+    @Test
+    void testFetchJoinStaysWithinBudget() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            sessionFactory.inSession(session -> session
+                    .createQuery("select distinct c from Customer c left join fetch c.bookings", Customer.class)
+                    .getResultList()
+                    .forEach(customer -> customer.bookings.size()));
+
+            sql.assertStatementsAtMost(1).assertWithin(new SqlBudget(1, 1));
+            assertEquals(0, sql.stats().getCollectionFetches());
+        }
+    }
+
+    @Test
+    void testNestedScopeAddsToOuterScope() {
+        try (SqlCapture outer = SqlCapture.start()) {
+            try (SqlCapture inner = SqlCapture.start()) {
+                sessionFactory.inSession(session -> session.find(Customer.class, 1L));
+                inner.assertStatementsAtMost(1);
+            }
+            assertEquals(1, outer.stats().getStatements());
+        }
+    }
+
+    @Entity(name = "Customer")
+    static class Customer {
+        @Id
+        @GeneratedValue
+        Long id;
+
+        @OneToMany(mappedBy = "customer", fetch = FetchType.LAZY)
+        List<Booking> bookings = new ArrayList<>();
+    }
+
+    @Entity(name = "Booking")
+    static class Booking {
+        @Id
+        @GeneratedValue
+        Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        Customer customer;
+    }
+}
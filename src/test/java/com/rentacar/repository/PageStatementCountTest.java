@@ -0,0 +1,220 @@
+package com.rentacar.repository;
+
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.ReservationDTO;
+import com.rentacar.dto.UserListItem;
+import com.rentacar.model.Reservation;
+import com.rentacar.model.User;
+import com.rentacar.model.Vehicle;
+import com.rentacar.monitoring.SqlCapture;
+import com.rentacar.monitoring.SqlCountingInspector;
+import com.rentacar.monitoring.SqlCountingStatistics;
+import com.rentacar.monitoring.SqlTimingListener;
+import com.rentacar.service.UserServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.StatisticsSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL statements per page, measured on H2 through the real repositories and entity mappings with the
+ * monitoring hooks and fetch batch size of application.properties. Each test reads what its page
+ * and view read, so an association falling back to one query per row fails the build.
+ */
+class PageStatementCountTest {
+
+    private static final int USERS = 120;
+    private static final int VEHICLES = 10;
+    private static final int RESERVATIONS_PER_USER = 2;
+    private static final String EMAIL = "user7@example.com";
+
+    private static StandardServiceRegistry registry;
+    private static SessionFactory sessionFactory;
+
+    private EntityManager entityManager;
+    private UserRepository userRepository;
+    private ReservationRepository reservationRepository;
+
+    @BeforeAll
+    static void setupDatabase() {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url",
+                        "jdbc:h2:mem:page-statements;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR,USER,DAY")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .applySetting(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, 50)
+                .applySetting(AvailableSettings.STATEMENT_INSPECTOR, new SqlCountingInspector())
+                .applySetting(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlTimingListener.class.getName())
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, true)
+                .applySetting(StatisticsSettings.STATS_BUILDER, (StatisticsFactory) SqlCountingStatistics::new)
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Vehicle.class)
+                .addAnnotatedClass(Reservation.class)
+                .buildMetadata().buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            Vehicle[] vehicles = new Vehicle[VEHICLES];
+            for (int i = 0; i < VEHICLES; i++) {
+                Vehicle vehicle = new Vehicle();
+                vehicle.setBrand("Toyota");
+                vehicle.setModel("Corolla");
+                vehicle.setYear(2022);
+                vehicle.setType(Vehicle.VehicleType.SEDAN);
+                vehicle.setLicensePlate("WA " + i);
+                vehicle.setDailyRate(new BigDecimal("100.00"));
+                session.persist(vehicle);
+                vehicles[i] = vehicle;
+            }
+            LocalDateTime start = LocalDateTime.of(2024, 6, 1, 10, 0);
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("user" + i + "@example.com");
+                user.setFirstName("Jan");
+                user.setLastName("Kowalski");
+                user.setRole(User.Role.ROLE_USER);
+                session.persist(user);
+                for (int j = 0; j < RESERVATIONS_PER_USER; j++) {
+                    Reservation reservation = new Reservation();
+                    reservation.setUser(user);
+                    // Every user's history spans several vehicles
+                    reservation.setVehicle(vehicles[(i + j * 3) % VEHICLES]);
+                    reservation.setStartDate(start.plusDays(i));
+                    reservation.setEndDate(start.plusDays(i + 2));
+                    reservation.setTotalCost(new BigDecimal("200.00"));
+                    reservation.setStatus(j == 0 ? Reservation.ReservationStatus.CONFIRMED
+                            : Reservation.ReservationStatus.COMPLETED);
+                    session.persist(reservation);
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    static void tearDownDatabase() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    // One persistence context per request, as with open-in-view
+    @BeforeEach
+    void openRequest() {
+        entityManager = sessionFactory.createEntityManager();
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+        userRepository = repositories.getRepository(UserRepository.class);
+        reservationRepository = repositories.getRepository(ReservationRepository.class);
+    }
+
+    @AfterEach
+    void closeRequest() {
+        entityManager.close();
+    }
+
+    @Test
+    void testLogin() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            User user = userRepository.findByEmail(EMAIL).orElseThrow();
+            user.getAuthorities();
+
+            sql.assertStatementsAtMost(1);
+        }
+    }
+
+    @Test
+    void testProfilePage() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            User user = userRepository.findByEmailWithReservations(EMAIL).orElseThrow();
+            user.getReservations().forEach(reservation -> reservation.getVehicle().getBrand());
+
+            assertEquals(RESERVATIONS_PER_USER, user.getReservations().size());
+            sql.assertStatementsAtMost(1);
+        }
+    }
+
+    @Test
+    void testUserReservationsPage() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            User user = userRepository.findByEmail(EMAIL).orElseThrow();
+            reservationRepository.findListItemsByUserId(user.getId());
+
+            sql.assertStatementsAtMost(2);
+        }
+    }
+
+    @Test
+    void testReservationDetailsAndPaymentPage() {
+        Long id = firstReservationId();
+
+        try (SqlCapture sql = SqlCapture.start()) {
+            Reservation reservation = reservationRepository.findDetailsById(id).orElseThrow();
+            reservation.getUser().getEmail();
+            reservation.getVehicle().getBrand();
+
+            sql.assertStatementsAtMost(1);
+        }
+    }
+
+    @Test
+    void testAdminUsersPage() {
+        UserServiceImpl userService = new UserServiceImpl();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "reservationRepository", reservationRepository);
+
+        try (SqlCapture sql = SqlCapture.start()) {
+            KeysetPage<UserListItem> page = userService.getUserListPage(null, 50);
+
+            assertEquals(50, page.items().size());
+            assertEquals(RESERVATIONS_PER_USER, page.items().get(0).reservationCount());
+            sql.assertStatementsAtMost(2);
+        }
+    }
+
+    @Test
+    void testAdminApiReservationPage() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            List<ReservationDTO> page = reservationRepository
+                    .findByIdLessThanOrderByIdDesc(Long.MAX_VALUE, PageRequest.ofSize(51)).stream()
+                    .map(ReservationDTO::new)
+                    .toList();
+
+            assertEquals(51, page.size());
+            sql.assertStatementsAtMost(1);
+        }
+    }
+
+    @Test
+    void testUsersReport() {
+        try (SqlCapture sql = SqlCapture.start()) {
+            List<User> users = userRepository.findAll();
+            users.forEach(user -> user.getReservations().size());
+
+            assertEquals(USERS, users.size());
+            // The collections are initialized 50 users at a time
+            sql.assertStatementsAtMost(1 + (USERS + 49) / 50);
+        }
+    }
+
+    // Leaves the persistence context empty, so the page starts from nothing loaded
+    private Long firstReservationId() {
+        Long id = reservationRepository.findAll(PageRequest.ofSize(1)).getContent().get(0).getId();
+        entityManager.clear();
+        return id;
+    }
+}
@@ -0,0 +1,126 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.ReservationsDeletedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.BookedInterval;
+import com.rentacar.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvailabilityCalendarTest {
+
+    private ReservationRepository reservationRepository;
+    private AvailabilityCalendar calendar;
+    private LocalDateTime today;
+
+    @BeforeEach
+    void setup() {
+        reservationRepository = mock(ReservationRepository.class);
+        calendar = new AvailabilityCalendar(reservationRepository, 30);
+        today = LocalDate.now().atStartOfDay();
+        // Vehicle 1 is booked on days 2-4, vehicle 2 until 10:15 on day 5
+        when(reservationRepository.findBookedIntervals(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(List.of(
+                        interval(1L, today.plusDays(2), today.plusDays(4)),
+                        interval(2L, today.plusDays(5).withHour(8), today.plusDays(5).withHour(10).withMinute(15))));
+        calendar.rebuild(today);
+    }
+
+    @Test
+    void testInteriorOverlapNeedsNoDatabaseCheck() {
+        Set<Long> booked = calendar.findBookedVehicleIds(today.plusDays(1), today.plusDays(3));
+
+        assertEquals(Set.of(1L), booked);
+        verify(reservationRepository, never()).findVehicleIdsWithOverlap(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPartlyCoveredBoundaryHourIsCheckedExactly() {
+        LocalDateTime start = today.plusDays(5).withHour(10).withMinute(30);
+        when(reservationRepository.findVehicleIdsWithOverlap(List.of(2L), start, start.plusHours(3),
+                Reservation.ReservationStatus.CANCELED)).thenReturn(List.of());
+
+        // Vehicle 2 is returned at 10:15, the search starts 10:30 within the same hour
+        assertEquals(Set.of(), calendar.findBookedVehicleIds(start, start.plusHours(3)));
+    }
+
+    @Test
+    void testRangesOutsideHorizonAreLeftToTheDatabase() {
+        assertNull(calendar.findBookedVehicleIds(today.minusDays(1), today.plusDays(1)));
+        assertNull(calendar.findBookedVehicleIds(today.plusDays(29), today.plusDays(31)));
+    }
+
+    @Test
+    void testNewReservationIsMarkedAndCancellationReleasesIt() {
+        LocalDateTime start = today.plusDays(10);
+        calendar.onReservationChanged(new ReservationChangedEvent(5L, 3L, start, start.plusDays(1),
+                Reservation.ReservationStatus.PENDING, null));
+        assertEquals(Set.of(3L), calendar.findBookedVehicleIds(start.minusHours(5), start.plusHours(5)));
+
+        when(reservationRepository.findBookedIntervals(eq(3L), any(), any(), any())).thenReturn(List.of());
+        calendar.onReservationChanged(new ReservationChangedEvent(5L, 3L, start, start.plusDays(1),
+                Reservation.ReservationStatus.CANCELED, null));
+        assertEquals(Set.of(), calendar.findBookedVehicleIds(start.minusHours(5), start.plusHours(5)));
+    }
+
+    @Test
+    void testReservationsDeletedWithTheirUserOrVehicleAreReleased() {
+        LocalDateTime start = today.plusDays(1);
+        // Vehicle 1 keeps a reservation of another user on day 3
+        when(reservationRepository.findBookedIntervals(eq(1L), any(), any(), any()))
+                .thenReturn(List.of(interval(1L, today.plusDays(3), today.plusDays(3).withHour(12))));
+        calendar.onReservationsDeleted(new ReservationsDeletedEvent(List.of(9L), Set.of(1L)));
+        calendar.onVehicleChanged(new VehicleChangedEvent(2L, null, null, ChangeKind.DELETED));
+
+        assertEquals(Set.of(), calendar.findBookedVehicleIds(start, start.plusHours(20)));
+        assertEquals(Set.of(1L), calendar.findBookedVehicleIds(start, today.plusDays(6)));
+    }
+
+    @Test
+    void testBitRangesAcrossWordBoundaries() {
+        long[] words = new long[3];
+        AvailabilityCalendar.setRange(words, 60, 130);
+
+        assertTrue(AvailabilityCalendar.anySet(words, 0, 60));
+        assertTrue(AvailabilityCalendar.anySet(words, 130, 191));
+        assertFalse(AvailabilityCalendar.anySet(words, 0, 59));
+        assertFalse(AvailabilityCalendar.anySet(words, 131, 191));
+        assertEquals(-1L, words[1]);
+    }
+
+    private static BookedInterval interval(long vehicleId, LocalDateTime start, LocalDateTime end) {
+        return new BookedInterval() {
+            @Override
+            public Long getReservationId() {
+                return vehicleId;
+            }
+
+            @Override
+            public Long getVehicleId() {
+                return vehicleId;
+            }
+
+            @Override
+            public LocalDateTime getStartDate() {
+                return start;
+            }
+
+            @Override
+            public LocalDateTime getEndDate() {
+                return end;
+            }
+        };
+    }
+}
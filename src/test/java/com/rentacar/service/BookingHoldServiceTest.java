@@ -0,0 +1,75 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookingHoldServiceTest {
+
+    private ReservationService reservationService;
+    private BookingHoldService holdService;
+    private long now;
+
+    @BeforeEach
+    void setup() {
+        reservationService = mock(ReservationService.class);
+        holdService = new BookingHoldService(mock(ReservationRepository.class), reservationService, 1000);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void testExpiresHoldOnceItsDeadlinePasses() {
+        holdService.onReservationChanged(pending(1L, now + 15 * 60_000));
+        when(reservationService.expireHold(eq(1L), any())).thenReturn(true);
+
+        holdService.expireDueHolds(now + 14 * 60_000);
+        verify(reservationService, never()).expireHold(any(), any());
+
+        holdService.expireDueHolds(now + 16 * 60_000);
+        verify(reservationService).expireHold(eq(1L), any());
+        assertEquals(0, holdService.pendingHolds());
+    }
+
+    @Test
+    void testConfirmedReservationIsNoLongerExpired() {
+        holdService.onReservationChanged(pending(1L, now + 60_000));
+        holdService.onReservationChanged(new ReservationChangedEvent(1L, 7L, null, null,
+                Reservation.ReservationStatus.CONFIRMED, null));
+
+        holdService.expireDueHolds(now + 120_000);
+        verify(reservationService, never()).expireHold(any(), any());
+    }
+
+    @Test
+    void testFailedExpiryIsRetried() {
+        holdService.onReservationChanged(pending(1L, now + 1_000));
+        when(reservationService.expireHold(eq(1L), any()))
+                .thenThrow(new RuntimeException("database down"))
+                .thenReturn(true);
+
+        holdService.expireDueHolds(now + 2_000);
+        assertEquals(1, holdService.pendingHolds());
+
+        // Retried a minute later, on the next whole tick
+        holdService.expireDueHolds(now + 2_000 + 61_000);
+        verify(reservationService, times(2)).expireHold(eq(1L), any());
+        assertEquals(0, holdService.pendingHolds());
+    }
+
+    private static ReservationChangedEvent pending(long reservationId, long holdExpiresAtMillis) {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(holdExpiresAtMillis), ZoneId.systemDefault());
+        return new ReservationChangedEvent(reservationId, 7L, expiresAt.plusDays(1), expiresAt.plusDays(2),
+                Reservation.ReservationStatus.PENDING, expiresAt);
+    }
+}
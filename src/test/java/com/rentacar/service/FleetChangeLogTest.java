@@ -0,0 +1,60 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetChangeLogTest {
+
+    private static final String EPOCH = "boot";
+    private static final String START = EPOCH + ".0";
+
+    @Test
+    void testChangesSinceReturnOnlyLaterChangesOncePerVehicle() {
+        FleetChangeLog log = new FleetChangeLog(EPOCH);
+        log.onVehicleChanged(new VehicleChangedEvent(1L, null, snapshot(1L, true)));
+        String afterFirst = log.currentVersion();
+        log.onVehicleChanged(new VehicleChangedEvent(2L, null, snapshot(2L, true)));
+        log.onVehicleChanged(new VehicleChangedEvent(2L, snapshot(2L, true), snapshot(2L, true)));
+        log.onVehicleChanged(new VehicleChangedEvent(3L, snapshot(3L, true), null));
+
+        FleetChangeLog.Changes changes = log.changesSince(afterFirst);
+
+        assertEquals(EPOCH + ".4", changes.version());
+        assertFalse(changes.reset());
+        assertEquals(List.of(2L), changes.upserts());
+        assertEquals(List.of(3L), changes.deletions());
+        assertEquals(List.of(1L, 2L), log.changesSince(START).upserts());
+    }
+
+    @Test
+    void testUnavailableVehicleLeavesThePublicList() {
+        FleetChangeLog log = new FleetChangeLog(EPOCH);
+        log.onVehicleChanged(new VehicleChangedEvent(1L, snapshot(1L, true), snapshot(1L, false)));
+
+        assertEquals(List.of(1L), log.changesSince(START).deletions());
+    }
+
+    @Test
+    void testNothingChangedAndUnknownVersions() {
+        FleetChangeLog log = new FleetChangeLog(EPOCH);
+        log.onVehicleChanged(new VehicleChangedEvent(1L, null, snapshot(1L, true)));
+
+        FleetChangeLog.Changes unchanged = log.changesSince(log.currentVersion());
+        assertTrue(unchanged.upserts().isEmpty());
+        assertTrue(unchanged.deletions().isEmpty());
+        // From before a restart, even when its counter is behind this one, or from the future
+        assertTrue(new FleetChangeLog("restarted").changesSince(START).reset());
+        assertTrue(log.changesSince(EPOCH + ".2").reset());
+        assertTrue(log.changesSince("1").reset());
+    }
+
+    private static VehicleSnapshot snapshot(long id, boolean available) {
+        return new VehicleSnapshot(id, 52.0, 21.0, Vehicle.VehicleType.SEDAN, available, 100, 5, "Petrol");
+    }
+}
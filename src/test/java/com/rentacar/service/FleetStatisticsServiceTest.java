@@ -0,0 +1,105 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.FleetStatistics;
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.UserChangedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation.ReservationStatus;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.StatusCount;
+import com.rentacar.repository.UserRepository;
+import com.rentacar.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FleetStatisticsServiceTest {
+
+    private VehicleRepository vehicleRepository;
+    private UserRepository userRepository;
+    private ReservationRepository reservationRepository;
+    private FleetStatisticsService statistics;
+
+    @BeforeEach
+    void setup() {
+        vehicleRepository = mock(VehicleRepository.class);
+        userRepository = mock(UserRepository.class);
+        reservationRepository = mock(ReservationRepository.class);
+        statistics = new FleetStatisticsService(vehicleRepository, userRepository, reservationRepository);
+
+        when(vehicleRepository.count()).thenReturn(10L);
+        when(userRepository.count()).thenReturn(4L);
+        when(reservationRepository.countByStatus()).thenReturn(List.of(
+                statusCount(ReservationStatus.PENDING, 2), statusCount(ReservationStatus.CONFIRMED, 5)));
+        statistics.loadOnStartup();
+    }
+
+    @Test
+    void testEventsUpdateCountsWithoutQueries() {
+        statistics.onVehicleChanged(new VehicleChangedEvent(11L, null, null, ChangeKind.CREATED));
+        statistics.onVehicleChanged(new VehicleChangedEvent(3L, null, null));
+        statistics.onUserChanged(new UserChangedEvent(5L, ChangeKind.CREATED));
+        statistics.onReservationChanged(reservation(ReservationStatus.PENDING, null));
+        statistics.onReservationChanged(reservation(ReservationStatus.CONFIRMED, ReservationStatus.PENDING));
+        statistics.onReservationChanged(reservation(ReservationStatus.CANCELED, ReservationStatus.PENDING));
+
+        FleetStatistics counts = statistics.getStatistics();
+
+        assertEquals(11, counts.vehicles());
+        assertEquals(5, counts.users());
+        assertEquals(8, counts.reservations());
+        assertEquals(1, counts.reservationsByStatus().get(ReservationStatus.PENDING));
+        assertEquals(6, counts.reservationsByStatus().get(ReservationStatus.CONFIRMED));
+        assertEquals(1, counts.reservationsByStatus().get(ReservationStatus.CANCELED));
+        assertEquals(0, counts.reservationsByStatus().get(ReservationStatus.COMPLETED));
+        verify(vehicleRepository, times(1)).count();
+    }
+
+    @Test
+    void testDeletionRecountsBecauseReservationsCascade() {
+        // Deleting the user also deleted its two confirmed reservations
+        when(userRepository.count()).thenReturn(3L);
+        when(reservationRepository.countByStatus()).thenReturn(List.of(
+                statusCount(ReservationStatus.PENDING, 2), statusCount(ReservationStatus.CONFIRMED, 3)));
+        statistics.onUserChanged(new UserChangedEvent(2L, ChangeKind.DELETED));
+
+        FleetStatistics counts = statistics.getStatistics();
+
+        assertEquals(3, counts.users());
+        assertEquals(5, counts.reservations());
+        verify(userRepository, times(2)).count();
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        statistics.onVehicleChanged(new VehicleChangedEvent(11L, null, null, ChangeKind.CREATED));
+        when(vehicleRepository.count()).thenReturn(12L);
+
+        statistics.reconcile();
+
+        assertEquals(12, statistics.getStatistics().vehicles());
+    }
+
+    private static ReservationChangedEvent reservation(ReservationStatus status, ReservationStatus previous) {
+        return new ReservationChangedEvent(1L, 7L, null, null, status, null, previous);
+    }
+
+    private static StatusCount statusCount(ReservationStatus status, long count) {
+        return new StatusCount() {
+            @Override
+            public ReservationStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.rentacar.service;
+
+import com.rentacar.event.GeofenceTransitionEvent;
+import com.rentacar.event.GeofenceTransitionEvent.Transition;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Geofence;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.GeofenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GeofenceServiceTest {
+
+    private final List<GeofenceTransitionEvent> events = new ArrayList<>();
+    private GeofenceService geofenceService;
+
+    @BeforeEach
+    void setup() {
+        GeofenceRepository repository = mock(GeofenceRepository.class);
+        // Warsaw, and a smaller zone around its centre nested inside it
+        when(repository.findByActiveTrue()).thenReturn(List.of(
+                geofence(1L, "Warszawa", 20.85, 52.10, 21.27, 52.37),
+                geofence(2L, "Śródmieście", 20.98, 52.21, 21.04, 52.25)));
+        geofenceService = new GeofenceService(repository, event -> events.add((GeofenceTransitionEvent) event));
+        geofenceService.reload();
+    }
+
+    @Test
+    void testZonesAtReturnsAllCoveringZones() {
+        assertArrayEquals(new long[]{1L, 2L}, geofenceService.zonesAt(52.23, 21.01));
+        assertArrayEquals(new long[]{1L}, geofenceService.zonesAt(52.15, 21.2));
+        assertArrayEquals(new long[]{}, geofenceService.zonesAt(50.06, 19.94));
+    }
+
+    @Test
+    void testMovingOutOfTheCityExitsBothZones() {
+        geofenceService.onVehicleChanged(move(snapshot(52.23, 21.01), snapshot(50.06, 19.94)));
+
+        assertEquals(2, events.size());
+        assertTrue(events.stream().allMatch(event -> event.transition() == Transition.EXIT));
+        assertEquals(List.of(1L, 2L), events.stream().map(GeofenceTransitionEvent::geofenceId).toList());
+    }
+
+    @Test
+    void testMovingWithinOuterZoneOnlyReportsInnerZone() {
+        geofenceService.onVehicleChanged(move(snapshot(52.15, 21.2), snapshot(52.23, 21.01)));
+
+        assertEquals(1, events.size());
+        assertEquals(2L, events.get(0).geofenceId());
+        assertEquals(Transition.ENTER, events.get(0).transition());
+    }
+
+    @Test
+    void testDeletedVehicleIsNotAnExit() {
+        geofenceService.onVehicleChanged(move(snapshot(52.23, 21.01), null));
+
+        assertTrue(events.isEmpty());
+    }
+
+    private static VehicleChangedEvent move(VehicleSnapshot previous, VehicleSnapshot current) {
+        return new VehicleChangedEvent(7L, previous, current);
+    }
+
+    private static VehicleSnapshot snapshot(double latitude, double longitude) {
+        return new VehicleSnapshot(7L, latitude, longitude, Vehicle.VehicleType.SEDAN, true, 100, 5, "Petrol");
+    }
+
+    private static Geofence geofence(long id, String name, double west, double south, double east, double north) {
+        Polygon area = new GeometryFactory().createPolygon(new Coordinate[]{
+                new Coordinate(west, south), new Coordinate(east, south), new Coordinate(east, north),
+                new Coordinate(west, north), new Coordinate(west, south)});
+        Geofence geofence = new Geofence();
+        geofence.setId(id);
+        geofence.setName(name);
+        geofence.setArea(area);
+        return geofence;
+    }
+}
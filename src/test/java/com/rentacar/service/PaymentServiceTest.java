@@ -0,0 +1,70 @@
+package com.rentacar.service;
+
+import com.rentacar.exception.PaymentException;
+import com.rentacar.model.Payment;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.PaymentRepository;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PaymentServiceTest {
+
+    private static final String INTENT = "pi_123";
+
+    private PaymentRepository paymentRepository;
+    private ReservationService reservationService;
+    private PaymentService paymentService;
+    private Reservation reservation;
+
+    @BeforeEach
+    void setup() {
+        paymentRepository = mock(PaymentRepository.class);
+        reservationService = mock(ReservationService.class);
+        paymentService = new PaymentService(paymentRepository, reservationService);
+
+        reservation = new Reservation();
+        reservation.setId(1L);
+        reservation.setTotalCost(new BigDecimal("300.00"));
+        when(reservationService.getReservationForUpdate(1L)).thenReturn(Optional.of(reservation));
+    }
+
+    @Test
+    void testPaymentConfirmsPendingReservation() {
+        reservation.setStatus(Reservation.ReservationStatus.PENDING);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Payment payment = paymentService.processPayment(reservation, INTENT);
+
+        assertEquals(INTENT, payment.getTransactionId());
+        verify(reservationService).confirmReservation(1L);
+    }
+
+    @Test
+    void testPaymentAfterExpiredHoldIsRefunded() {
+        reservation.setStatus(Reservation.ReservationStatus.CANCELED);
+
+        try (MockedStatic<Refund> refund = mockStatic(Refund.class)) {
+            PaymentException e = assertThrows(PaymentException.class,
+                    () -> paymentService.processPayment(reservation, INTENT));
+
+            assertTrue(e.getMessage().contains("refunded"));
+            refund.verify(() -> Refund.create(eq(Map.<String, Object>of("payment_intent", INTENT)),
+                    argThat((RequestOptions options) -> ("expired-hold-" + INTENT).equals(options.getIdempotencyKey()))));
+        }
+        verify(reservationService, never()).confirmReservation(any());
+        verify(paymentRepository, never()).save(any());
+    }
+}
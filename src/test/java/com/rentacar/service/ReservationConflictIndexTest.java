@@ -0,0 +1,133 @@
+package com.rentacar.service;
+
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.ReservationChangedEvent;
+import com.rentacar.event.ReservationsDeletedEvent;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Reservation;
+import com.rentacar.repository.BookedInterval;
+import com.rentacar.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReservationConflictIndexTest {
+
+    private ReservationRepository reservationRepository;
+    private ReservationConflictIndex index;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setup() {
+        reservationRepository = mock(ReservationRepository.class);
+        index = new ReservationConflictIndex(reservationRepository);
+        now = LocalDateTime.of(2024, 6, 1, 12, 0);
+    }
+
+    @Test
+    void testNothingIsAConflictBeforeLoading() {
+        index.onReservationChanged(new ReservationChangedEvent(1L, 7L, now, now.plusDays(2),
+                Reservation.ReservationStatus.PENDING, null));
+
+        assertFalse(index.hasConflict(7L, now, now.plusDays(1)));
+    }
+
+    @Test
+    void testFollowsCreateAndCancel() {
+        when(reservationRepository.findBookedIntervalsEndingAfter(any(), any()))
+                .thenReturn(List.of(interval(1L, 7L, now.plusDays(1), now.plusDays(3))));
+        index.reload(now);
+
+        assertTrue(index.hasConflict(7L, now.plusDays(3), now.plusDays(4)));
+        assertFalse(index.hasConflict(7L, now.plusDays(3).plusMinutes(1), now.plusDays(4)));
+        assertFalse(index.hasConflict(8L, now.plusDays(1), now.plusDays(2)));
+
+        index.onReservationChanged(new ReservationChangedEvent(2L, 8L, now.plusDays(1), now.plusDays(2),
+                Reservation.ReservationStatus.PENDING, null));
+        index.onReservationChanged(new ReservationChangedEvent(2L, 8L, now.plusDays(1), now.plusDays(2),
+                Reservation.ReservationStatus.CONFIRMED, null));
+        assertTrue(index.hasConflict(8L, now.plusDays(2), now.plusDays(5)));
+        assertEquals(2, index.size());
+
+        index.onReservationChanged(new ReservationChangedEvent(1L, 7L, now.plusDays(1), now.plusDays(3),
+                Reservation.ReservationStatus.CANCELED, null));
+        assertFalse(index.hasConflict(7L, now, now.plusDays(10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testCancellationDuringReloadIsReplayed() {
+        when(reservationRepository.findBookedIntervalsEndingAfter(any(), any())).thenAnswer(invocation -> {
+            // Committed after the reload read the table
+            index.onReservationChanged(new ReservationChangedEvent(1L, 7L, now.plusDays(1), now.plusDays(3),
+                    Reservation.ReservationStatus.CANCELED, null));
+            return List.of(interval(1L, 7L, now.plusDays(1), now.plusDays(3)));
+        });
+        index.reload(now);
+
+        assertFalse(index.hasConflict(7L, now, now.plusDays(10)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testDropsReservationsDeletedWithTheirUserOrVehicle() {
+        when(reservationRepository.findBookedIntervalsEndingAfter(any(), any())).thenReturn(List.of(
+                interval(1L, 7L, now.plusDays(1), now.plusDays(3)),
+                interval(2L, 8L, now.plusDays(1), now.plusDays(3)),
+                interval(3L, 9L, now.plusDays(1), now.plusDays(3))));
+        index.reload(now);
+
+        index.onReservationsDeleted(new ReservationsDeletedEvent(List.of(1L, 2L), Set.of(7L, 8L)));
+        index.onVehicleChanged(new VehicleChangedEvent(9L, null, null, ChangeKind.DELETED));
+
+        assertFalse(index.hasConflict(7L, now, now.plusDays(10)));
+        assertFalse(index.hasConflict(8L, now, now.plusDays(10)));
+        assertFalse(index.hasConflict(9L, now, now.plusDays(10)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testEvictDropsOnlyIntervalsOverlappingTheRange() {
+        when(reservationRepository.findBookedIntervalsEndingAfter(any(), any())).thenReturn(List.of(
+                interval(1L, 7L, now.plusDays(1), now.plusDays(3)),
+                interval(2L, 7L, now.plusDays(5), now.plusDays(6))));
+        index.reload(now);
+
+        index.evict(7L, now.plusDays(2), now.plusDays(4));
+
+        assertFalse(index.hasConflict(7L, now, now.plusDays(4)));
+        assertTrue(index.hasConflict(7L, now.plusDays(5), now.plusDays(5)));
+        assertEquals(1, index.size());
+    }
+
+    private static BookedInterval interval(long reservationId, long vehicleId, LocalDateTime start, LocalDateTime end) {
+        return new BookedInterval() {
+            @Override
+            public Long getReservationId() {
+                return reservationId;
+            }
+
+            @Override
+            public Long getVehicleId() {
+                return vehicleId;
+            }
+
+            @Override
+            public LocalDateTime getStartDate() {
+                return start;
+            }
+
+            @Override
+            public LocalDateTime getEndDate() {
+                return end;
+            }
+        };
+    }
+}
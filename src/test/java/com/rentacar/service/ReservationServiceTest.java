@@ -1,16 +1,23 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.KeysetPage;
+import com.rentacar.dto.ReservationListItem;
+import com.rentacar.exception.ReservationException;
 import com.rentacar.model.Reservation;
 import com.rentacar.model.User;
 import com.rentacar.model.Vehicle;
 import com.rentacar.repository.ReservationRepository;
-import com.rentacar.repository.VehicleRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,6 +26,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -28,7 +36,16 @@ class ReservationServiceTest {
     private ReservationRepository reservationRepository;
 
     @Mock
-    private VehicleRepository vehicleRepository;
+    private VehicleService vehicleService;
+
+    @Mock
+    private ReservationConflictIndex conflictIndex;
+
+    @Mock
+    private RevenueRollupService revenueRollup;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     private ReservationService reservationService;
 
@@ -43,7 +60,8 @@ class ReservationServiceTest {
         MockitoAnnotations.openMocks(this);
         
         // Initialize the service with mocks
-        reservationService = new ReservationService(reservationRepository, vehicleRepository);
+        reservationService = new ReservationService(reservationRepository, vehicleService, conflictIndex,
+                revenueRollup, eventPublisher, Duration.ofMinutes(15));
         
         // Initialize test user
         testUser = new User();
@@ -97,7 +115,47 @@ class ReservationServiceTest {
         assertEquals(TEST_RESERVATION_ID, result.get(0).getId());
         verify(reservationRepository, times(1)).findAll();
     }
+
+    @Test
+    void testGetReservationPageFetchesOneExtraRowToDetectNextPage() {
+        List<Reservation> rows = new ArrayList<>();
+        for (long id = 30; id > 27; id--) {
+            Reservation reservation = new Reservation();
+            reservation.setId(id);
+            rows.add(reservation);
+        }
+        when(reservationRepository.findByIdLessThanOrderByIdDesc(Long.MAX_VALUE, PageRequest.ofSize(3)))
+                .thenReturn(rows);
+        when(reservationRepository.findByIdLessThanOrderByIdDesc(29L, PageRequest.ofSize(3)))
+                .thenReturn(rows.subList(2, 3));
+
+        KeysetPage<Reservation> first = reservationService.getReservationPage(null, 2);
+        assertEquals(List.of(30L, 29L), first.items().stream().map(Reservation::getId).toList());
+        assertEquals(29L, first.nextCursor());
+
+        KeysetPage<Reservation> last = reservationService.getReservationPage(first.nextCursor(), 2);
+        assertEquals(1, last.items().size());
+        assertFalse(last.hasNext());
+    }
     
+    @Test
+    void testGetReservationListPageUsesProjection() {
+        List<ReservationListItem> rows = new ArrayList<>();
+        for (long id = 30; id > 27; id--) {
+            rows.add(new ReservationListItem(id, null, null, BigDecimal.TEN, Reservation.ReservationStatus.PENDING,
+                    null, null, 1L, "Toyota", "Corolla", "WX12345", null, 2022, null,
+                    "test@example.com", "Jan", "Kowalski"));
+        }
+        when(reservationRepository.findListItemsByIdLessThan(Long.MAX_VALUE, PageRequest.ofSize(3)))
+                .thenReturn(rows);
+
+        KeysetPage<ReservationListItem> page = reservationService.getReservationListPage(null, 2);
+
+        assertEquals(List.of(30L, 29L), page.items().stream().map(ReservationListItem::id).toList());
+        assertEquals(29L, page.nextCursor());
+        verify(reservationRepository, never()).findByIdLessThanOrderByIdDesc(any(), any());
+    }
+
     @Test
     void testGetReservationById() {
         Optional<Reservation> result = reservationService.getReservationById(TEST_RESERVATION_ID);
@@ -150,11 +208,95 @@ class ReservationServiceTest {
                 any(Reservation.ReservationStatus.class)))
             .thenReturn(overlappingReservations);
         
-        assertThrows(IllegalStateException.class, () -> {
+        ReservationException e = assertThrows(ReservationException.class, () -> {
             reservationService.createReservation(testUser, testVehicle, startDate, endDate);
         });
+        assertEquals(testVehicle.getId(), e.getVehicleId());
     }
     
+    @Test
+    void testCreateReservation_HoldsVehicleForPayment() {
+        LocalDateTime before = LocalDateTime.now();
+        reservationService.createReservation(testUser, testVehicle, before.plusDays(1), before.plusDays(3));
+
+        verify(reservationRepository).save(argThat(reservation -> reservation.getHoldExpiresAt() != null
+                && !reservation.getHoldExpiresAt().isBefore(before.plusMinutes(15))));
+    }
+
+    @Test
+    void testExpireHold_CancelsUnpaidReservation() {
+        LocalDateTime now = LocalDateTime.now();
+        testReservation.setHoldExpiresAt(now.minusSeconds(1));
+        when(reservationRepository.findByIdForUpdate(TEST_RESERVATION_ID)).thenReturn(Optional.of(testReservation));
+
+        assertTrue(reservationService.expireHold(TEST_RESERVATION_ID, now));
+        assertEquals(Reservation.ReservationStatus.CANCELED, testReservation.getStatus());
+        assertNull(testReservation.getHoldExpiresAt());
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testExpireHold_LeavesPaidOrExtendedReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        testReservation.setHoldExpiresAt(now.plusMinutes(5));
+        when(reservationRepository.findByIdForUpdate(TEST_RESERVATION_ID)).thenReturn(Optional.of(testReservation));
+        assertFalse(reservationService.expireHold(TEST_RESERVATION_ID, now));
+
+        testReservation.setStatus(Reservation.ReservationStatus.CONFIRMED);
+        testReservation.setHoldExpiresAt(null);
+        assertFalse(reservationService.expireHold(TEST_RESERVATION_ID, now));
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    void testCreateReservation_ExclusionViolationBecomesReservationException() {
+        LocalDateTime startDate = LocalDateTime.now().plusDays(1);
+        LocalDateTime endDate = LocalDateTime.now().plusDays(3);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("conflicting key value violates exclusion constraint", "23P01")))
+                .when(reservationRepository).flush();
+
+        ReservationException e = assertThrows(ReservationException.class, () ->
+                reservationService.createReservation(testUser, testVehicle, startDate, endDate));
+        assertEquals(testVehicle.getId(), e.getVehicleId());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testCreateReservation_OtherIntegrityViolationsPropagate() {
+        doThrow(new DataIntegrityViolationException("not-null", new SQLException("null value", "23502")))
+                .when(reservationRepository).flush();
+
+        assertThrows(DataIntegrityViolationException.class, () -> reservationService.createReservation(
+                testUser, testVehicle, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(3)));
+    }
+
+    @Test
+    void testCreateReservation_KnownConflictIsConfirmedInDatabase() {
+        LocalDateTime startDate = LocalDateTime.now().plusDays(1);
+        LocalDateTime endDate = LocalDateTime.now().plusDays(3);
+        when(conflictIndex.hasConflict(testVehicle.getId(), startDate, endDate)).thenReturn(true);
+        when(reservationRepository.findOverlappingReservations(testVehicle, startDate, endDate,
+                Reservation.ReservationStatus.CANCELED)).thenReturn(List.of(testReservation));
+
+        assertThrows(ReservationException.class, () ->
+                reservationService.createReservation(testUser, testVehicle, startDate, endDate));
+        verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(conflictIndex, never()).evict(anyLong(), any(), any());
+    }
+
+    @Test
+    void testCreateReservation_StaleKnownConflictIsEvictedAndBooked() {
+        LocalDateTime startDate = LocalDateTime.now().plusDays(1);
+        LocalDateTime endDate = LocalDateTime.now().plusDays(3);
+        // The blocking reservation was deleted with its user, the database no longer has it
+        when(conflictIndex.hasConflict(testVehicle.getId(), startDate, endDate)).thenReturn(true);
+
+        assertNotNull(reservationService.createReservation(testUser, testVehicle, startDate, endDate));
+        verify(conflictIndex).evict(testVehicle.getId(), startDate, endDate);
+        verify(reservationRepository).save(any(Reservation.class));
+    }
+
     @Test
     void testConfirmReservation() {
         Reservation confirmedReservation = new Reservation();
@@ -221,7 +363,7 @@ class ReservationServiceTest {
         
         assertEquals(5, result.getRating());
         assertEquals("Great car!", result.getFeedback());
-        verify(vehicleRepository, times(1)).save(any(Vehicle.class));
+        verify(vehicleService, times(1)).addRating(ratedVehicle, 5);
     }
     
     @Test
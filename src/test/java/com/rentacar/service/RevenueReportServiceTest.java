@@ -0,0 +1,94 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.RevenueReport;
+import com.rentacar.model.Reservation.ReservationStatus;
+import com.rentacar.model.Vehicle.VehicleType;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.RevenueBucket;
+import com.rentacar.repository.RevenueDailyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RevenueReportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 6, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 6, 30);
+
+    private RevenueDailyRepository revenueDailyRepository;
+    private ReservationRepository reservationRepository;
+    private RevenueReportService reportService;
+
+    @BeforeEach
+    void setup() {
+        revenueDailyRepository = mock(RevenueDailyRepository.class);
+        reservationRepository = mock(ReservationRepository.class);
+        reportService = new RevenueReportService(revenueDailyRepository, reservationRepository);
+    }
+
+    @Test
+    void testReportSumsRollupRowsPerTypeStatusAndDay() {
+        when(revenueDailyRepository.findBuckets(RevenueReportService.EARNING_STATUSES, FROM, TO)).thenReturn(List.of(
+                bucket(VehicleType.SEDAN, ReservationStatus.CONFIRMED, FROM, 2, "300.00"),
+                bucket(VehicleType.SEDAN, ReservationStatus.COMPLETED, FROM.plusDays(1), 1, "150.00"),
+                bucket(VehicleType.SUV, ReservationStatus.CONFIRMED, FROM, 1, "400.00")));
+
+        RevenueReport report = reportService.getReport(FROM, TO);
+
+        assertEquals(new RevenueReport.Totals(4, new BigDecimal("850.00")), report.total());
+        assertEquals(new RevenueReport.Totals(3, new BigDecimal("450.00")), report.byType().get(VehicleType.SEDAN));
+        assertEquals(new RevenueReport.Totals(3, new BigDecimal("700.00")), report.byStatus().get(ReservationStatus.CONFIRMED));
+        assertEquals(List.of(FROM, FROM.plusDays(1)), List.copyOf(report.byDay().keySet()));
+        assertEquals(new RevenueReport.Totals(3, new BigDecimal("700.00")), report.byDay().get(FROM));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void testDrillDownOnlyCoversEarningStatuses() {
+        reportService.getReservations(FROM, TO, VehicleType.SUV, ReservationStatus.COMPLETED);
+        verify(reservationRepository).findListItemsStartingIn(eq(Set.of(ReservationStatus.COMPLETED)),
+                eq(FROM.atStartOfDay()), any(), eq(VehicleType.SUV));
+
+        assertTrue(reportService.getReservations(FROM, TO, null, ReservationStatus.CANCELED).isEmpty());
+        verifyNoMoreInteractions(reservationRepository);
+    }
+
+    private static RevenueBucket bucket(VehicleType type, ReservationStatus status, LocalDate day,
+                                        long reservations, String revenue) {
+        return new RevenueBucket() {
+            @Override
+            public VehicleType getVehicleType() {
+                return type;
+            }
+
+            @Override
+            public ReservationStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public LocalDate getDay() {
+                return day;
+            }
+
+            @Override
+            public long getReservations() {
+                return reservations;
+            }
+
+            @Override
+            public BigDecimal getRevenue() {
+                return new BigDecimal(revenue);
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.rentacar.service;
+
+import com.rentacar.model.Reservation;
+import com.rentacar.model.Reservation.ReservationStatus;
+import com.rentacar.model.Vehicle;
+import com.rentacar.model.Vehicle.VehicleType;
+import com.rentacar.repository.ReservationRepository;
+import com.rentacar.repository.RevenueDailyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RevenueRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+    private static final BigDecimal COST = new BigDecimal("450.00");
+
+    private RevenueDailyRepository revenueDailyRepository;
+    private ReservationRepository reservationRepository;
+    private RevenueRollupService rollup;
+
+    @BeforeEach
+    void setup() {
+        revenueDailyRepository = mock(RevenueDailyRepository.class);
+        reservationRepository = mock(ReservationRepository.class);
+        rollup = new RevenueRollupService(revenueDailyRepository, reservationRepository, mock(TransactionTemplate.class));
+    }
+
+    @Test
+    void testStatusChangeMovesReservationBetweenRowsInStatusOrder() {
+        rollup.recordChange(reservation(ReservationStatus.PENDING), null);
+        rollup.recordChange(reservation(ReservationStatus.CONFIRMED), ReservationStatus.PENDING);
+        rollup.recordChange(reservation(VehicleType.SUV, ReservationStatus.CONFIRMED), ReservationStatus.CANCELED);
+
+        InOrder inOrder = inOrder(revenueDailyRepository);
+        inOrder.verify(revenueDailyRepository).add(DAY, "SEDAN", "PENDING", 1, COST);
+        inOrder.verify(revenueDailyRepository).add(DAY, "SEDAN", "PENDING", -1, COST.negate());
+        inOrder.verify(revenueDailyRepository).add(DAY, "SEDAN", "CONFIRMED", 1, COST);
+        // CONFIRMED sorts before CANCELED, so it is locked first even though it is the target
+        inOrder.verify(revenueDailyRepository).add(DAY, "SUV", "CONFIRMED", 1, COST);
+        inOrder.verify(revenueDailyRepository).add(DAY, "SUV", "CANCELED", -1, COST.negate());
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void testUnchangedStatusLeavesRollupAlone() {
+        rollup.recordChange(reservation(ReservationStatus.CONFIRMED), ReservationStatus.CONFIRMED);
+
+        verify(revenueDailyRepository, never()).add(any(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testVehicleTypeChangeDoesNotMoveBookedReservation() {
+        // Booked as a sedan, the vehicle was retyped before the reservation was confirmed
+        Reservation reservation = reservation(ReservationStatus.CONFIRMED);
+        reservation.getVehicle().setType(VehicleType.SUV);
+
+        rollup.recordChange(reservation, ReservationStatus.PENDING);
+
+        verify(revenueDailyRepository).add(DAY, "SEDAN", "PENDING", -1, COST.negate());
+        verify(revenueDailyRepository).add(DAY, "SEDAN", "CONFIRMED", 1, COST);
+        verify(revenueDailyRepository, never()).add(any(), eq("SUV"), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testReservationWithoutStoredTypeKeepsTheOneItIsFirstCountedUnder() {
+        Reservation reservation = reservation(ReservationStatus.PENDING);
+        reservation.setRevenueVehicleType(null);
+
+        rollup.recordChange(reservation, null);
+        reservation.getVehicle().setType(VehicleType.SUV);
+        reservation.setStatus(ReservationStatus.CANCELED);
+        rollup.recordChange(reservation, ReservationStatus.PENDING);
+
+        assertEquals(VehicleType.SEDAN, reservation.getRevenueVehicleType());
+        verify(revenueDailyRepository).add(DAY, "SEDAN", "PENDING", -1, COST.negate());
+        verify(revenueDailyRepository).add(DAY, "SEDAN", "CANCELED", 1, COST);
+    }
+
+    private static Reservation reservation(ReservationStatus status) {
+        return reservation(VehicleType.SEDAN, status);
+    }
+
+    private static Reservation reservation(VehicleType type, ReservationStatus status) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(7L);
+        vehicle.setType(type);
+        Reservation reservation = new Reservation();
+        reservation.setVehicle(vehicle);
+        reservation.setRevenueVehicleType(type);
+        reservation.setStartDate(DAY.atTime(10, 0));
+        reservation.setTotalCost(COST);
+        reservation.setStatus(status);
+        return reservation;
+    }
+}
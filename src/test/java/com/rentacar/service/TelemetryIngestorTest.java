@@ -0,0 +1,90 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.LocationPing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TelemetryIngestorTest {
+
+    private VehicleService vehicleService;
+    private SimpleMeterRegistry registry;
+    private TelemetryIngestor ingestor;
+
+    @BeforeEach
+    void setup() {
+        vehicleService = mock(VehicleService.class);
+        registry = new SimpleMeterRegistry();
+        ingestor = new TelemetryIngestor(vehicleService, registry);
+    }
+
+    @Test
+    void testKeepsOnlyLatestPositionPerVehicle() {
+        Instant t0 = Instant.parse("2024-05-01T10:00:00Z");
+        when(vehicleService.applyLocationBatch(anyList())).thenAnswer(call -> ((List<?>) call.getArgument(0)).size());
+
+        ingestor.accept(List.of(
+                new LocationPing(1L, 52.0, 21.0, t0),
+                new LocationPing(1L, 52.2, 21.2, t0.plusSeconds(2)),
+                // Arrives late, older than what is buffered
+                new LocationPing(1L, 52.1, 21.1, t0.plusSeconds(1)),
+                new LocationPing(2L, 50.0, 19.9, t0)));
+        ingestor.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LocationPing>> batch = ArgumentCaptor.forClass(List.class);
+        verify(vehicleService).applyLocationBatch(batch.capture());
+        assertEquals(2, batch.getValue().size());
+        LocationPing first = batch.getValue().stream().filter(p -> p.vehicleId() == 1L).findFirst().orElseThrow();
+        assertEquals(52.2, first.latitude());
+        assertEquals(4, registry.counter("rentacar.telemetry.pings.accepted").count());
+        assertEquals(2, registry.counter("rentacar.telemetry.rows.flushed").count());
+        assertEquals(0, ingestor.pendingCount());
+    }
+
+    @Test
+    void testRejectsInvalidPings() {
+        int accepted = ingestor.accept(List.of(
+                new LocationPing(1L, 95.0, 21.0, null),
+                new LocationPing(2L, 0.0, 0.0, null),
+                new LocationPing(null, 52.0, 21.0, null),
+                new LocationPing(3L, 52.0, 21.0, null)));
+
+        assertEquals(1, accepted);
+        assertEquals(3, registry.counter("rentacar.telemetry.pings.rejected").count());
+    }
+
+    @Test
+    void testRejectsPingsDatedBeyondClockSkew() {
+        Instant now = Instant.now();
+
+        int accepted = ingestor.accept(List.of(
+                new LocationPing(1L, 52.0, 21.0, now.plusSeconds(10)),
+                // Would hold back every real report of vehicle 2 for a day
+                new LocationPing(2L, 52.0, 21.0, now.plus(Duration.ofDays(1)))));
+
+        assertEquals(1, accepted);
+        assertEquals(1, ingestor.pendingCount());
+        assertEquals(1, registry.counter("rentacar.telemetry.pings.rejected").count());
+    }
+
+    @Test
+    void testFailedFlushKeepsPositionsForNextFlush() {
+        when(vehicleService.applyLocationBatch(anyList())).thenThrow(new IllegalStateException("db down"));
+        ingestor.accept(List.of(new LocationPing(1L, 52.0, 21.0, null)));
+
+        ingestor.flush();
+
+        assertEquals(1, ingestor.pendingCount());
+        assertEquals(1, registry.counter("rentacar.telemetry.flush.failures").count());
+    }
+}
@@ -0,0 +1,101 @@
+package com.rentacar.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentacar.event.ChangeKind;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VehicleJsonCacheTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private VehicleJsonCache cache;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        cache = new VehicleJsonCache(vehicleRepository, objectMapper);
+
+        vehicle = new Vehicle();
+        vehicle.setId(1L);
+        vehicle.setBrand("Toyota");
+        vehicle.setModel("Corolla");
+        vehicle.setType(Vehicle.VehicleType.SEDAN);
+        vehicle.setDailyRate(new BigDecimal("100.00"));
+        vehicle.setLatitude(52.0);
+        vehicle.setLongitude(21.0);
+        when(vehicleRepository.findAllById(any())).thenAnswer(invocation -> List.of(vehicle));
+    }
+
+    @Test
+    void testCachedBytesAreReusedUntilInvalidated() throws Exception {
+        byte[] first = cache.getJson(List.of(1L)).get(0);
+        byte[] second = cache.getJson(List.of(1L)).get(0);
+
+        assertSame(first, second);
+        verify(vehicleRepository, times(1)).findAllById(any());
+        JsonNode json = objectMapper.readTree(first);
+        assertEquals("Toyota", json.get("brand").asText());
+        assertEquals("SEDAN", json.get("type").asText());
+
+        vehicle.setBrand("Honda");
+        cache.onVehicleChanged(new VehicleChangedEvent(1L, null, null));
+
+        assertEquals("Honda", objectMapper.readTree(cache.getJson(List.of(1L)).get(0)).get("brand").asText());
+        verify(vehicleRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void testReadStartedBeforeInvalidationIsNotCached() {
+        long readStamp = cache.stamp();
+        cache.invalidate(1L);
+
+        // Served, but the row may predate the change, so it must not be cached
+        assertNotNull(cache.getJson(vehicle, readStamp));
+        assertEquals(0, cache.size());
+
+        cache.getJson(vehicle, cache.stamp());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testDeletedVehicleLeavesNothingBehind() {
+        cache.onVehicleChanged(new VehicleChangedEvent(1L, null, null));
+        long readStamp = cache.stamp();
+        cache.getJson(List.of(1L));
+        assertEquals(1, cache.trackedVehicles());
+
+        cache.onVehicleChanged(new VehicleChangedEvent(1L, null, null, ChangeKind.DELETED));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.trackedVehicles());
+        // A read from before the deletion must not cache the deleted vehicle again
+        cache.getJson(vehicle, readStamp);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testMissingVehiclesKeepTheirPosition() {
+        List<byte[]> json = cache.getJson(List.of(7L, 1L));
+
+        assertNull(json.get(0));
+        assertTrue(new String(json.get(1)).contains("\"id\":1"));
+        assertEquals(2, json.size());
+    }
+}
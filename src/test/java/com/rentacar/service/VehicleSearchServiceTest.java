@@ -0,0 +1,158 @@
+package com.rentacar.service;
+
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.dto.VehicleSearchCriteria;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.geo.VehicleSpatialIndex;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VehicleSearchServiceTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private AvailabilityCalendar availabilityCalendar;
+
+    private VehicleSearchService searchService;
+    private Vehicle nearSuv;
+    private Vehicle farSuv;
+    private Vehicle nearSedan;
+    private Vehicle expensiveSuv;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        nearSuv = vehicle(1L, Vehicle.VehicleType.SUV, 52.231, 21.011, "150");
+        farSuv = vehicle(2L, Vehicle.VehicleType.SUV, 50.06, 19.94, "150");
+        nearSedan = vehicle(3L, Vehicle.VehicleType.SEDAN, 52.232, 21.012, "90");
+        expensiveSuv = vehicle(4L, Vehicle.VehicleType.SUV, 52.24, 21.02, "400");
+        when(vehicleRepository.findAll()).thenReturn(List.of(nearSuv, farSuv, nearSedan, expensiveSuv));
+
+        VehicleService vehicleService = new VehicleService(vehicleRepository,
+                new GeometryFactory(new PrecisionModel(), 4326), new VehicleSpatialIndex(0.05), event -> { },
+                mock(RevenueRollupService.class));
+        searchService = new VehicleSearchService(vehicleRepository, vehicleService, availabilityCalendar);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLocationTypeAndPriceApplyTogether() {
+        // The database part only confirms availability and reservations for the ids it is given
+        when(vehicleRepository.findAll(any(Specification.class))).thenReturn(List.of(nearSuv));
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(52.23, 21.01, 5.0, Vehicle.VehicleType.SUV,
+                null, null, null, new BigDecimal("200"), null, null);
+        List<VehicleDTO> result = searchService.search(criteria);
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertNotNull(result.get(0).getDistance());
+        verify(vehicleRepository, times(1)).findAll(any(Specification.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNoSpatialCandidatesSkipsTheDatabase() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(52.23, 21.01, 5.0, Vehicle.VehicleType.SUV,
+                null, null, new BigDecimal("500"), null, null, null);
+
+        assertTrue(searchService.search(criteria).isEmpty());
+        verify(vehicleRepository, never()).findAll(any(Specification.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSelectiveDatabasePredicatesDriveWideLocationSearch() {
+        List<Vehicle> fleet = new ArrayList<>();
+        for (long id = 1; id <= VehicleSearchService.MAX_IDS_PER_QUERY + 1; id++) {
+            fleet.add(vehicle(id, Vehicle.VehicleType.SUV, 52.23, 21.01, "150"));
+        }
+        when(vehicleRepository.findAll()).thenReturn(fleet);
+        when(vehicleRepository.count(any(Specification.class))).thenReturn(1L);
+        when(vehicleRepository.findAll(any(Specification.class))).thenReturn(List.of(fleet.get(41)));
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(52.23, 21.01, 5.0, null,
+                null, null, null, null, null, null);
+        List<VehicleDTO> result = searchService.search(criteria);
+
+        assertEquals(List.of(42L), result.stream().map(VehicleDTO::getId).toList());
+        assertNotNull(result.get(0).getDistance());
+        // One query for the matching rows instead of one per id batch
+        verify(vehicleRepository, times(1)).findAll(any(Specification.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWithoutLocationOneQueryCarriesAllFilters() {
+        when(vehicleRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(List.of(farSuv));
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(null, null, null, Vehicle.VehicleType.SUV,
+                null, null, null, null, 5, "petrol");
+        List<VehicleDTO> result = searchService.search(criteria);
+
+        assertEquals(List.of(2L), result.stream().map(VehicleDTO::getId).toList());
+        assertNull(result.get(0).getDistance());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTimeRangeInsideCalendarHorizonSkipsBookedVehicles() {
+        LocalDateTime start = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime end = start.plusDays(2);
+        when(availabilityCalendar.findBookedVehicleIds(start, end)).thenReturn(Set.of(1L));
+        when(vehicleRepository.findAll(any(Specification.class))).thenReturn(List.of(nearSuv, nearSedan));
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(52.23, 21.01, 5.0, null,
+                start, end, null, null, null, null);
+        List<VehicleDTO> result = searchService.search(criteria);
+
+        assertEquals(List.of(3L), result.stream().map(VehicleDTO::getId).toList());
+    }
+
+    @Test
+    void testSnapshotFilterMatchesEveryCriterion() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(null, null, null, Vehicle.VehicleType.SUV,
+                null, null, new BigDecimal("100"), new BigDecimal("200"), 5, "PETROL");
+        Predicate<VehicleSnapshot> filter = VehicleSearchService.snapshotFilter(criteria);
+
+        assertTrue(filter.test(VehicleSnapshot.of(nearSuv)));
+        assertFalse(filter.test(VehicleSnapshot.of(nearSedan)));
+        assertFalse(filter.test(VehicleSnapshot.of(expensiveSuv)));
+        nearSuv.setSeats(4);
+        assertFalse(filter.test(VehicleSnapshot.of(nearSuv)));
+    }
+
+    private static Vehicle vehicle(long id, Vehicle.VehicleType type, double latitude, double longitude,
+                                   String dailyRate) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setType(type);
+        vehicle.setLatitude(latitude);
+        vehicle.setLongitude(longitude);
+        vehicle.setDailyRate(new BigDecimal(dailyRate));
+        vehicle.setSeats(5);
+        vehicle.setFuelType("Petrol");
+        return vehicle;
+    }
+}
@@ -1,21 +1,36 @@
 package com.rentacar.service;
 
+import com.rentacar.dto.LocationPing;
+import com.rentacar.dto.VehicleDTO;
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.SpatialQueryMode;
+import com.rentacar.geo.VehicleSpatialIndex;
 import com.rentacar.model.Vehicle;
 import com.rentacar.repository.VehicleRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class VehicleServiceTest {
@@ -23,6 +38,12 @@ class VehicleServiceTest {
     @Mock
     private VehicleRepository vehicleRepository;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private RevenueRollupService revenueRollup;
+    
     private VehicleService vehicleService;
     private GeometryFactory geometryFactory;
     private Vehicle testVehicle;
@@ -34,8 +55,9 @@ class VehicleServiceTest {
         // Create the GeometryFactory instance
         geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
         
-        // Match the constructor signature - pass both repository and geometryFactory
-        vehicleService = new VehicleService(vehicleRepository, geometryFactory);
+        // Match the constructor signature - repository, geometryFactory, spatial index, event publisher and rollup
+        vehicleService = new VehicleService(vehicleRepository, geometryFactory, new VehicleSpatialIndex(0.05),
+                eventPublisher, revenueRollup);
         
         // Create test vehicle data
         testVehicle = new Vehicle();
@@ -62,5 +84,146 @@ class VehicleServiceTest {
         assertEquals("Toyota", result.get().getBrand());
     }
     
+    @Test
+    void testGetVehiclesNearLocation() {
+        when(vehicleRepository.findAll()).thenReturn(List.of(testVehicle));
+        when(vehicleRepository.findAllById(List.of(1L))).thenReturn(List.of(testVehicle));
+        
+        List<Vehicle> nearby = vehicleService.getVehiclesNearLocation(52.01, 21.01, 5);
+        List<Vehicle> farAway = vehicleService.getVehiclesNearLocation(50.06, 19.94, 5);
+        
+        assertEquals(1, nearby.size());
+        assertTrue(farAway.isEmpty());
+        // The fleet is read once to build the index, not once per query
+        verify(vehicleRepository, times(1)).findAll();
+    }
+    
+    @Test
+    void testUpdateVehicleLocationMovesVehicleInIndex() {
+        when(vehicleRepository.findAll()).thenReturn(List.of(testVehicle));
+        when(vehicleRepository.findAllById(any())).thenReturn(List.of(testVehicle));
+        vehicleService.getVehiclesNearLocation(52.0, 21.0, 5);
+        
+        vehicleService.updateVehicleLocation(1L, 50.06, 19.94);
+        
+        assertTrue(vehicleService.getVehiclesNearLocation(52.0, 21.0, 5).isEmpty());
+        assertEquals(1, vehicleService.getVehiclesNearLocation(50.06, 19.94, 5).size());
+    }
+    
+    @Test
+    void testUpdateVehicleLocationPublishesOldAndNewPosition() {
+        vehicleService.updateVehicleLocation(1L, 50.06, 19.94);
+        
+        ArgumentCaptor<VehicleChangedEvent> event = ArgumentCaptor.forClass(VehicleChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(52.0, event.getValue().previous().latitude());
+        assertEquals(50.06, event.getValue().current().latitude());
+    }
+
+    @Test
+    void testUpdateVehicleLocationHoldsBackOlderTelemetry() {
+        Instant before = Instant.now();
+
+        vehicleService.updateVehicleLocation(1L, 50.06, 19.94);
+
+        verify(vehicleRepository).markPositionAt(eq(1L), argThat(at -> !at.isBefore(before)));
+    }
+
+    @Test
+    void testAddRatingAveragesAndPublishesChange() {
+        testVehicle.setRatingCount(3);
+        testVehicle.setRating(4.0);
+
+        vehicleService.addRating(testVehicle, 2);
+
+        assertEquals(4, testVehicle.getRatingCount());
+        assertEquals(3.5, testVehicle.getRating());
+        ArgumentCaptor<VehicleChangedEvent> event = ArgumentCaptor.forClass(VehicleChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().vehicleId());
+        assertFalse(event.getValue().isDeleted());
+    }
+
+    @Test
+    void testApplyLocationBatchMovesIndexedVehiclesWithoutLoadingThem() {
+        when(vehicleRepository.findAll()).thenReturn(List.of(testVehicle));
+        when(vehicleRepository.findAllById(any())).thenReturn(List.of(testVehicle));
+        vehicleService.getVehiclesNearLocation(52.0, 21.0, 5);
+        when(vehicleRepository.updateLocations(any())).thenReturn(new int[]{1, 0});
+        
+        // Vehicle 99 does not exist, its update count is 0
+        int updated = vehicleService.applyLocationBatch(List.of(
+                new LocationPing(99L, 50.0, 20.0, null),
+                new LocationPing(1L, 50.06, 19.94, null)));
+        
+        assertEquals(1, updated);
+        verify(vehicleRepository, times(1)).findAllById(any());
+        assertEquals(1, vehicleService.getVehiclesNearLocation(50.06, 19.94, 5).size());
+        ArgumentCaptor<VehicleChangedEvent> event = ArgumentCaptor.forClass(VehicleChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(52.0, event.getValue().previous().latitude());
+        assertEquals(50.06, event.getValue().current().latitude());
+        assertEquals(Vehicle.VehicleType.SEDAN, event.getValue().current().type());
+    }
+    
+    @Test
+    void testForEachAvailableVehicleDetachesEveryRow() {
+        EntityManager entityManager = mock(EntityManager.class);
+        ReflectionTestUtils.setField(vehicleService, "entityManager", entityManager);
+        Vehicle other = new Vehicle();
+        other.setId(2L);
+        when(vehicleRepository.streamAvailableWithLocation()).thenReturn(Stream.of(testVehicle, other));
+        
+        List<Long> seen = new ArrayList<>();
+        vehicleService.forEachAvailableVehicleWithLocation(vehicle -> seen.add(vehicle.getId()));
+        
+        assertEquals(List.of(1L, 2L), seen);
+        verify(entityManager).detach(testVehicle);
+        verify(entityManager).detach(other);
+    }
+    
+    @Test
+    void testPostgisModeDelegatesToRepository() {
+        ReflectionTestUtils.setField(vehicleService, "spatialMode", SpatialQueryMode.POSTGIS);
+        when(vehicleRepository.findWithinDistance(52.0, 21.0, 5000.0)).thenReturn(List.of(testVehicle));
+        when(vehicleRepository.findNearest(52.0, 21.0, 3)).thenReturn(List.of(testVehicle));
+        
+        assertEquals(1, vehicleService.getVehiclesNearLocation(52.0, 21.0, 5).size());
+        assertEquals(1, vehicleService.getNearestVehicles(52.0, 21.0, 3).size());
+        verify(vehicleRepository, never()).findAll();
+    }
+    
+    @Test
+    void testGetNearestVehiclesKeepsDistanceOrder() {
+        Vehicle farther = new Vehicle();
+        farther.setId(2L);
+        farther.setLatitude(52.5);
+        farther.setLongitude(21.0);
+        when(vehicleRepository.findAll()).thenReturn(List.of(farther, testVehicle));
+        when(vehicleRepository.findAllById(any())).thenReturn(List.of(farther, testVehicle));
+        
+        List<Vehicle> nearest = vehicleService.getNearestVehicles(52.0, 21.0, 2);
+        
+        assertEquals(List.of(1L, 2L), nearest.stream().map(Vehicle::getId).toList());
+    }
+    
+    @Test
+    void testGetNearestAvailableVehiclesSkipsUnavailableAndCarriesDistance() {
+        Vehicle unavailable = new Vehicle();
+        unavailable.setId(2L);
+        unavailable.setLatitude(52.0);
+        unavailable.setLongitude(21.0);
+        unavailable.setType(Vehicle.VehicleType.SEDAN);
+        unavailable.setAvailable(false);
+        when(vehicleRepository.findAll()).thenReturn(List.of(unavailable, testVehicle));
+        when(vehicleRepository.findAllById(List.of(1L))).thenReturn(List.of(testVehicle));
+        
+        List<VehicleDTO> nearest = vehicleService.getNearestAvailableVehicles(52.1, 21.0, 5, null);
+        
+        assertEquals(1, nearest.size());
+        assertEquals(1L, nearest.get(0).getId());
+        assertEquals(11.1, nearest.get(0).getDistance(), 0.1);
+    }
+    
     // Additional tests...
 }
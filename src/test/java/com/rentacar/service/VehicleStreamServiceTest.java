@@ -0,0 +1,193 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.VehicleSnapshot;
+import com.rentacar.model.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleStreamServiceTest {
+
+    private static final VehicleStreamService.Bounds WARSAW = new VehicleStreamService.Bounds(52.0, 20.8, 52.4, 21.3);
+
+    private VehicleStreamService streamService;
+
+    @BeforeEach
+    void setup() {
+        streamService = new VehicleStreamService(1, 60_000, 10, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+    }
+
+    @Test
+    void testSendsChangesInsideBoundsAndRemovalWhenLeaving() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        streamService.subscribe(emitter, WARSAW);
+
+        streamService.onVehicleChanged(move(1L, null, snapshot(1L, 52.2, 21.0)));
+        // Krakow, outside the box
+        streamService.onVehicleChanged(move(2L, null, snapshot(2L, 50.06, 19.94)));
+        streamService.onVehicleChanged(move(3L, snapshot(3L, 52.1, 21.1), snapshot(3L, 50.06, 19.94)));
+
+        emitter.awaitSends(2);
+        assertEquals(2, emitter.sent.size());
+        assertTrue(emitter.sent.stream().anyMatch(event -> event.contains("event:position") && event.contains("id=1,")));
+        assertTrue(emitter.sent.stream().anyMatch(event -> event.contains("event:removed") && event.contains("id=3,")));
+    }
+
+    @Test
+    void testSlowSubscriberOnlyGetsLatestPositionPerVehicle() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        streamService.subscribe(emitter, null);
+
+        // The first send blocks the drain, the next two positions queue up for the same vehicle
+        streamService.onVehicleChanged(move(1L, null, snapshot(1L, 52.20, 21.0)));
+        emitter.awaitSendStarted();
+        streamService.onVehicleChanged(move(1L, null, snapshot(1L, 52.21, 21.0)));
+        streamService.onVehicleChanged(move(1L, null, snapshot(1L, 52.22, 21.0)));
+        release.countDown();
+
+        emitter.awaitSends(2);
+        Thread.sleep(50);
+        assertEquals(2, emitter.sent.size());
+        assertTrue(emitter.sent.get(1).contains("52.22"));
+    }
+
+    @Test
+    void testStalledSubscriberIsDroppedWithoutHoldingTheDrainThread() throws Exception {
+        VehicleStreamService bounded = new VehicleStreamService(1, 60_000, 10, 100);
+        try {
+            // Never released: a client that stopped reading
+            RecordingEmitter stalled = new RecordingEmitter(new CountDownLatch(1));
+            RecordingEmitter reading = new RecordingEmitter(null);
+            bounded.subscribe(stalled, null);
+            bounded.onVehicleChanged(move(1L, null, snapshot(1L, 52.2, 21.0)));
+            stalled.awaitSendStarted();
+            bounded.subscribe(reading, null);
+
+            bounded.onVehicleChanged(move(2L, null, snapshot(2L, 52.3, 21.0)));
+
+            reading.awaitSends(1);
+            assertEquals(1, reading.sent.size());
+            assertEquals(1, bounded.subscriberCount());
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    @Test
+    void testRejectsSubscribersBeyondLimit() {
+        VehicleStreamService limited = new VehicleStreamService(1, 60_000, 1, 5_000);
+        try {
+            assertNotNull(limited.subscribe(null));
+            assertNull(limited.subscribe(null));
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testClosedStreamFreesItsSlotOnce() {
+        VehicleStreamService limited = new VehicleStreamService(1, 60_000, 2, 5_000);
+        try {
+            CallbackEmitter closing = new CallbackEmitter();
+            assertNotNull(limited.subscribe(closing, null));
+            assertNotNull(limited.subscribe(null));
+            assertNull(limited.subscribe(null));
+
+            // A timeout is followed by the completion callback
+            closing.timeoutCallback.run();
+            closing.completionCallback.run();
+
+            assertNotNull(limited.subscribe(null));
+            assertNull(limited.subscribe(null));
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testBoundsAcrossAntimeridian() {
+        VehicleStreamService.Bounds pacific = new VehicleStreamService.Bounds(-20, 170, 20, -170);
+        assertTrue(pacific.contains(0, 175));
+        assertTrue(pacific.contains(0, -175));
+        assertFalse(pacific.contains(0, 0));
+    }
+
+    private static VehicleChangedEvent move(long id, VehicleSnapshot previous, VehicleSnapshot current) {
+        return new VehicleChangedEvent(id, previous, current);
+    }
+
+    private static VehicleSnapshot snapshot(long id, double latitude, double longitude) {
+        return new VehicleSnapshot(id, latitude, longitude, Vehicle.VehicleType.SEDAN, true, 100, 5, "Petrol");
+    }
+
+    // Keeps the lifecycle callbacks, which the MVC handler would otherwise invoke
+    private static class CallbackEmitter extends SseEmitter {
+
+        Runnable completionCallback;
+        Runnable timeoutCallback;
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+        }
+    }
+
+    // Records what would be written to the connection; optionally blocks the first send
+    private static class RecordingEmitter extends SseEmitter {
+
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            firstSendStarted.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> event.append(part.getData()));
+            sent.add(event.toString());
+        }
+
+        void awaitSendStarted() throws InterruptedException {
+            assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        }
+
+        void awaitSends(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.rentacar.service;
+
+import com.rentacar.event.VehicleChangedEvent;
+import com.rentacar.geo.TileMath;
+import com.rentacar.geo.VehicleSpatialIndex;
+import com.rentacar.model.Vehicle;
+import com.rentacar.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VehicleTileServiceTest {
+
+    private static final int ZOOM = 12;
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private VehicleService vehicleService;
+    private VehicleTileService tileService;
+    private Vehicle warsaw;
+    private Vehicle krakow;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        warsaw = vehicle(1L, 52.2297, 21.0122);
+        krakow = vehicle(2L, 50.0647, 19.9450);
+        when(vehicleRepository.findAll()).thenReturn(List.of(warsaw, krakow));
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(warsaw));
+        when(vehicleRepository.save(any(Vehicle.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        vehicleService = new VehicleService(vehicleRepository,
+                new GeometryFactory(new PrecisionModel(), 4326), new VehicleSpatialIndex(0.05),
+                event -> tileService.onVehicleChanged((VehicleChangedEvent) event),
+                mock(RevenueRollupService.class));
+        tileService = new VehicleTileService(vehicleService, 100);
+    }
+
+    @Test
+    void testTileContainsVehicleAtItsPixelPosition() {
+        int x = TileMath.tileX(warsaw.getLongitude(), ZOOM);
+        int y = TileMath.tileY(warsaw.getLatitude(), ZOOM);
+
+        List<long[]> features = decodePoints(tileService.getTile(ZOOM, x, y));
+
+        assertEquals(1, features.size());
+        assertEquals(1L, features.get(0)[0]);
+        double tiles = 1 << ZOOM;
+        long expectedX = Math.round((TileMath.mercatorX(warsaw.getLongitude()) * tiles - x) * 4096);
+        long expectedY = Math.round((TileMath.mercatorY(warsaw.getLatitude()) * tiles - y) * 4096);
+        assertEquals(expectedX, features.get(0)[1]);
+        assertEquals(expectedY, features.get(0)[2]);
+    }
+
+    @Test
+    void testLocationUpdateEvictsOnlyAffectedTiles() {
+        int warsawX = TileMath.tileX(warsaw.getLongitude(), ZOOM);
+        int warsawY = TileMath.tileY(warsaw.getLatitude(), ZOOM);
+        int krakowX = TileMath.tileX(krakow.getLongitude(), ZOOM);
+        int krakowY = TileMath.tileY(krakow.getLatitude(), ZOOM);
+        tileService.getTile(ZOOM, warsawX, warsawY);
+        tileService.getTile(ZOOM, krakowX, krakowY);
+        tileService.getTile(ZOOM, 0, 0);
+        assertEquals(3, tileService.cachedTileCount());
+
+        // Move the Warsaw vehicle next to the Krakow one
+        vehicleService.updateVehicleLocation(1L, 50.0648, 19.9451);
+
+        // Its old and new tile are evicted, the unrelated one stays cached
+        assertEquals(1, tileService.cachedTileCount());
+        assertTrue(decodePoints(tileService.getTile(ZOOM, warsawX, warsawY)).isEmpty());
+        assertEquals(2, decodePoints(tileService.getTile(ZOOM, krakowX, krakowY)).size());
+    }
+
+    @Test
+    void testEmptyTileStillHasLayer() {
+        byte[] tile = tileService.getTile(ZOOM, 0, 0);
+
+        assertTrue(tile.length > 0);
+        assertTrue(decodePoints(tile).isEmpty());
+    }
+
+    @Test
+    void testRejectsTilesOutsideTheGrid() {
+        assertTrue(VehicleTileService.isValidTile(0, 0, 0));
+        assertFalse(VehicleTileService.isValidTile(2, 4, 0));
+        assertFalse(VehicleTileService.isValidTile(-1, 0, 0));
+        assertFalse(VehicleTileService.isValidTile(VehicleTileService.MAX_ZOOM + 1, 0, 0));
+    }
+
+    // Decodes the point features of the first layer as {id, x, y}
+    private static List<long[]> decodePoints(byte[] tile) {
+        ByteArrayInputStream in = new ByteArrayInputStream(tile);
+        assertEquals((3 << 3) | 2, readVarint(in));
+        ByteArrayInputStream layer = new ByteArrayInputStream(readBytes(in));
+        List<long[]> points = new ArrayList<>();
+        while (layer.available() > 0) {
+            long tag = readVarint(layer);
+            if ((tag & 7) == 0) {
+                readVarint(layer);
+                continue;
+            }
+            byte[] body = readBytes(layer);
+            if (tag >>> 3 != 2) {
+                continue;
+            }
+            ByteArrayInputStream feature = new ByteArrayInputStream(body);
+            long[] point = new long[3];
+            while (feature.available() > 0) {
+                long featureTag = readVarint(feature);
+                if ((featureTag & 7) == 0) {
+                    long value = readVarint(feature);
+                    if (featureTag >>> 3 == 1) {
+                        point[0] = value;
+                    }
+                    continue;
+                }
+                ByteArrayInputStream packed = new ByteArrayInputStream(readBytes(feature));
+                if (featureTag >>> 3 == 4) {
+                    assertEquals(9, readVarint(packed));
+                    point[1] = unZigZag(readVarint(packed));
+                    point[2] = unZigZag(readVarint(packed));
+                }
+            }
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static long readVarint(ByteArrayInputStream in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] readBytes(ByteArrayInputStream in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.read(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static long unZigZag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static Vehicle vehicle(long id, double latitude, double longitude) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setType(Vehicle.VehicleType.SEDAN);
+        vehicle.setAvailable(true);
+        vehicle.setLatitude(latitude);
+        vehicle.setLongitude(longitude);
+        return vehicle;
+    }
+}
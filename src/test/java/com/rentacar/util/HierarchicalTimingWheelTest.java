@@ -0,0 +1,67 @@
+package com.rentacar.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void testFiresOnTheFirstTickAtOrAfterTheDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+
+        assertEquals(List.of(), wheel.advanceTo(299));
+        assertEquals(List.of("a"), wheel.advanceTo(300));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelledAndRescheduledKeysFireOnlyAtTheirCurrentDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 4, 0);
+        wheel.schedule("cancelled", 10);
+        wheel.schedule("moved", 10);
+        wheel.schedule("moved", 100);
+        assertTrue(wheel.cancel("cancelled"));
+
+        assertEquals(List.of(), wheel.advanceTo(50));
+        assertEquals(List.of("moved"), wheel.advanceTo(100));
+    }
+
+    @Test
+    void testOverdueDeadlineFiresOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 60, 5_000);
+        wheel.schedule("late", 1_000);
+
+        assertEquals(List.of("late"), wheel.advanceTo(5_000));
+    }
+
+    @Test
+    void testCascadesAcrossLevelsInDeadlineOrder() {
+        Random random = new Random(7);
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1, 4, 3);
+        TreeMap<Long, List<Integer>> expected = new TreeMap<>();
+        for (int key = 0; key < 2000; key++) {
+            long deadline = 3 + random.nextInt(5000);
+            wheel.schedule(key, deadline);
+            expected.computeIfAbsent(deadline, d -> new ArrayList<>()).add(key);
+        }
+
+        long now = 3;
+        while (!expected.isEmpty()) {
+            now += 1 + random.nextInt(40);
+            List<Integer> due = new ArrayList<>();
+            while (!expected.isEmpty() && expected.firstKey() <= now) {
+                due.addAll(expected.pollFirstEntry().getValue());
+            }
+            List<Integer> fired = wheel.advanceTo(now);
+            assertEquals(due.stream().sorted().toList(), fired.stream().sorted().toList(), "at " + now);
+        }
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.rentacar.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    @Test
+    void testClosedIntervalsTouchingAtAnEndpointOverlap() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        tree.insert(1, 10, 20);
+
+        assertTrue(tree.overlaps(20, 30));
+        assertTrue(tree.overlaps(0, 10));
+        assertTrue(tree.overlaps(12, 14));
+        assertFalse(tree.overlaps(21, 30));
+        assertFalse(tree.overlaps(0, 9));
+    }
+
+    @Test
+    void testRemoveOnlyDropsTheGivenId() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        tree.insert(1, 10, 20);
+        tree.insert(2, 10, 15);
+
+        assertTrue(tree.remove(1, 10));
+        assertFalse(tree.remove(1, 10));
+        assertEquals(1, tree.size());
+        assertEquals(List.of(2L), tree.overlapping(0, 100));
+        assertFalse(tree.overlaps(16, 20));
+    }
+
+    @Test
+    void testMatchesBruteForceUnderRandomInsertsAndRemoves() {
+        Random random = new Random(42);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        Map<Long, int[]> expected = new HashMap<>();
+
+        for (long id = 0; id < 5000; id++) {
+            if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                long victim = new ArrayList<>(expected.keySet()).get(random.nextInt(expected.size()));
+                assertTrue(tree.remove(victim, expected.remove(victim)[0]));
+            }
+            int start = random.nextInt(10_000);
+            int end = start + random.nextInt(200);
+            tree.insert(id, start, end);
+            expected.put(id, new int[]{start, end});
+
+            if (id % 50 == 0) {
+                int queryStart = random.nextInt(10_000);
+                int queryEnd = queryStart + random.nextInt(100);
+                List<Long> overlapping = new ArrayList<>();
+                expected.forEach((key, interval) -> {
+                    if (interval[0] <= queryEnd && interval[1] >= queryStart) {
+                        overlapping.add(key);
+                    }
+                });
+                assertEquals(!overlapping.isEmpty(), tree.overlaps(queryStart, queryEnd));
+                assertEquals(overlapping.stream().sorted().toList(),
+                        tree.overlapping(queryStart, queryEnd).stream().sorted().toList());
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+    }
+}